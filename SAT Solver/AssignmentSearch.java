@@ -0,0 +1,331 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Local search over container assignments instead of clause bits.
+ *
+ * containerOf[c] is the container of chemical c, so the exactly-one
+ * constraint always holds and a move relocates one chemical. Together[c*M+j]
+ * and Separate[c*M+j] count the together and separate neighbours of c placed
+ * in container j; the number of edges of c violated if c sat in j is then
+ * TogetherDegree[c] - Together[c*M+j] + Separate[c*M+j], and a move only
+ * updates the counts of the moved chemical's neighbours.
+ *
+ * Chemicals with a violated edge are kept in the Conflicting array with
+ * swap-remove, the same way LocalSearch keeps its unsatisfied clauses.
+ *
+ * Container capacity is kept as a hard limit rather than scored: the search
+ * starts from an assignment within capacity, a chemical is only relocated to
+ * a container with room, and a full container is entered by swapping with
+ * one of its chemicals. Occupancy[j] counts the chemicals of container j and
+ * Members[j] lists them.
+ *
+ * Stop, when set, is polled every 256 moves, and BestContainerOf and
+ * best_violated keep the assignment with the fewest violated edges seen,
+ * like in LocalSearch.
+ */
+class AssignmentSearch{
+    public int num_chemicals;
+    public int num_containers;
+    public int capacity;
+    public int containerOf[];
+    public int num_violated;
+    public int moves;
+    public int BestContainerOf[];
+    public int best_violated;
+    public Random randomGenerator;
+    public AtomicBoolean Stop;
+
+    private int Neighbors[];
+    private int NeighborStart[];
+    private int TogetherDegree[];
+    private int Together[];
+    private int Separate[];
+    private int Conflicting[];
+    private int ConflictIndex[];
+    private int num_conflicting;
+    private int Occupancy[];
+    private int Members[][];
+    private int MemberIndex[];
+    private int NeighborSign[];
+    private int NeighborMark[];
+    private int mark;
+    private int best_delta;
+
+    AssignmentSearch(ChemicalGraph Graph, Random randomGenerator){
+        num_chemicals = Graph.num_chemicals;
+        num_containers = Graph.num_containers;
+        capacity = Math.min(Graph.capacity, num_chemicals);
+        this.randomGenerator = randomGenerator;
+        containerOf = new int[num_chemicals];
+        TogetherDegree = new int[num_chemicals];
+        Together = new int[num_chemicals * num_containers];
+        Separate = new int[num_chemicals * num_containers];
+        Conflicting = new int[num_chemicals];
+        BestContainerOf = new int[num_chemicals];
+        ConflictIndex = new int[num_chemicals];
+        Occupancy = new int[num_containers];
+        Members = new int[num_containers][capacity + 1];
+        MemberIndex = new int[num_chemicals];
+        NeighborSign = new int[num_chemicals];
+        NeighborMark = new int[num_chemicals];
+
+        /* Neighbors holds (d << 1) | 1 for a separate neighbour d and d << 1 for a together one. */
+        NeighborStart = new int[num_chemicals + 1];
+        for (int e = 0; e < 2 * Graph.num_together; e++){
+            NeighborStart[Graph.Together[e] + 1]++;
+            TogetherDegree[Graph.Together[e]]++;
+        }
+        for (int e = 0; e < 2 * Graph.num_separate; e++)
+            NeighborStart[Graph.Separate[e] + 1]++;
+        for (int c = 0; c < num_chemicals; c++)
+            NeighborStart[c + 1] += NeighborStart[c];
+
+        int Next[] = new int[num_chemicals];
+        System.arraycopy(NeighborStart, 0, Next, 0, num_chemicals);
+        Neighbors = new int[NeighborStart[num_chemicals]];
+        int a, b;
+        for (int e = 0; e < Graph.num_together; e++){
+            a = Graph.Together[2 * e];
+            b = Graph.Together[2 * e + 1];
+            Neighbors[Next[a]++] = b << 1;
+            Neighbors[Next[b]++] = a << 1;
+        }
+        for (int e = 0; e < Graph.num_separate; e++){
+            a = Graph.Separate[2 * e];
+            b = Graph.Separate[2 * e + 1];
+            Neighbors[Next[a]++] = (b << 1) | 1;
+            Neighbors[Next[b]++] = (a << 1) | 1;
+        }
+    }
+
+    int getRandomNumber(int start, int end){
+        return start + randomGenerator.nextInt(end - start + 1);
+    }
+
+    boolean doRandom(double p){
+        return randomGenerator.nextDouble() <= p;
+    }
+
+    /* Edges of chemical c violated if it were placed in container j. */
+    int cost(int c, int j){
+        return TogetherDegree[c] - Together[c * num_containers + j] + Separate[c * num_containers + j];
+    }
+
+    /*
+     * Random assignment within capacity: each chemical takes a random
+     * container, or the next one with room if that one is full. Returns null
+     * when the chemicals do not fit at all.
+     */
+    int[] getRandomAssignment(){
+        if ((long)num_containers * capacity < num_chemicals)
+            return null;
+        int Assignment[] = new int[num_chemicals];
+        int Used[] = new int[num_containers];
+        int j;
+        for (int c = 0; c < num_chemicals; c++){
+            j = getRandomNumber(0, num_containers - 1);
+            while (Used[j] == capacity)
+                j = (j + 1) % num_containers;
+            Used[j]++;
+            Assignment[c] = j;
+        }
+        return Assignment;
+    }
+
+    /* Loads a complete assignment within capacity and recomputes every count. */
+    void initialize(int[] assignment){
+        System.arraycopy(assignment, 0, containerOf, 0, num_chemicals);
+        Arrays.fill(Occupancy, 0);
+        for (int c = 0; c < num_chemicals; c++){
+            MemberIndex[c] = Occupancy[containerOf[c]];
+            Members[containerOf[c]][Occupancy[containerOf[c]]++] = c;
+        }
+        Arrays.fill(Together, 0);
+        Arrays.fill(Separate, 0);
+        int d;
+        for (int c = 0; c < num_chemicals; c++){
+            for (int i = NeighborStart[c]; i < NeighborStart[c + 1]; i++){
+                d = Neighbors[i] >> 1;
+                if ((Neighbors[i] & 1) == 0)
+                    Together[c * num_containers + containerOf[d]]++;
+                else
+                    Separate[c * num_containers + containerOf[d]]++;
+            }
+        }
+        num_violated = 0;
+        num_conflicting = 0;
+        for (int c = 0; c < num_chemicals; c++){
+            ConflictIndex[c] = -1;
+            num_violated += cost(c, containerOf[c]);
+            updateConflicting(c);
+        }
+        num_violated /= 2;
+        keepBest();
+    }
+
+    private void keepBest(){
+        best_violated = num_violated;
+        System.arraycopy(containerOf, 0, BestContainerOf, 0, num_chemicals);
+    }
+
+    private void updateConflicting(int c){
+        boolean conflicting = cost(c, containerOf[c]) > 0;
+        if (conflicting && ConflictIndex[c] < 0){
+            ConflictIndex[c] = num_conflicting;
+            Conflicting[num_conflicting++] = c;
+        }
+        else if (!conflicting && ConflictIndex[c] >= 0){
+            int last = Conflicting[--num_conflicting];
+            Conflicting[ConflictIndex[c]] = last;
+            ConflictIndex[last] = ConflictIndex[c];
+            ConflictIndex[c] = -1;
+        }
+    }
+
+    void move(int c, int to){
+        int from = containerOf[c], d;
+        num_violated += cost(c, to) - cost(c, from);
+        containerOf[c] = to;
+
+        int last = Members[from][--Occupancy[from]];
+        Members[from][MemberIndex[c]] = last;
+        MemberIndex[last] = MemberIndex[c];
+        MemberIndex[c] = Occupancy[to];
+        Members[to][Occupancy[to]++] = c;
+
+        for (int i = NeighborStart[c]; i < NeighborStart[c + 1]; i++){
+            d = Neighbors[i] >> 1;
+            if ((Neighbors[i] & 1) == 0){
+                Together[d * num_containers + from]--;
+                Together[d * num_containers + to]++;
+            }
+            else {
+                Separate[d * num_containers + from]--;
+                Separate[d * num_containers + to]++;
+            }
+            updateConflicting(d);
+        }
+        updateConflicting(c);
+    }
+
+    /*
+     * Exchanges the containers of c and d. Container b holds one chemical
+     * over capacity between the two moves, which is why Members has a spare
+     * slot; c ends up in the slot d left.
+     */
+    void swap(int c, int d){
+        int a = containerOf[c];
+        move(c, containerOf[d]);
+        move(d, a);
+    }
+
+    /* Records the neighbours of c so that swapDelta can correct for an edge between the pair. */
+    private void markNeighbors(int c){
+        mark++;
+        for (int i = NeighborStart[c]; i < NeighborStart[c + 1]; i++){
+            NeighborMark[Neighbors[i] >> 1] = mark;
+            NeighborSign[Neighbors[i] >> 1] = Neighbors[i] & 1;
+        }
+    }
+
+    /*
+     * Change in violated edges if c and d, in different containers, swap.
+     * The costs of each side assume the other has not moved; an edge between
+     * them is violated (together) or satisfied (separate) both before and
+     * after, so its two wrong contributions are taken back. Needs
+     * markNeighbors(c) first.
+     */
+    int swapDelta(int c, int d){
+        int a = containerOf[c], b = containerOf[d];
+        int delta = cost(c, b) - cost(c, a) + cost(d, a) - cost(d, b);
+        if (NeighborMark[d] == mark)
+            delta += NeighborSign[d] == 0 ? 2 : -2;
+        return delta;
+    }
+
+    /*
+     * Best move of chemical c, ties broken at random: a relocation to another
+     * container with room, or a swap with a chemical of a full container.
+     * Returns the target container, or -1 - d for a swap with chemical d, and
+     * leaves the change in violated edges in best_delta.
+     */
+    int getBestMove(int c){
+        int best = 0, min = Integer.MAX_VALUE, ties = 0, value, d;
+        int current = cost(c, containerOf[c]);
+        markNeighbors(c);
+        for (int j = 0; j < num_containers; j++){
+            if (j == containerOf[c])
+                continue;
+            if (Occupancy[j] < capacity){
+                value = cost(c, j) - current;
+                if (value < min){
+                    min = value;
+                    best = j;
+                    ties = 1;
+                }
+                else if (value == min && randomGenerator.nextInt(++ties) == 0)
+                    best = j;
+                continue;
+            }
+            for (int m = 0; m < Occupancy[j]; m++){
+                d = Members[j][m];
+                value = swapDelta(c, d);
+                if (value < min){
+                    min = value;
+                    best = -1 - d;
+                    ties = 1;
+                }
+                else if (value == min && randomGenerator.nextInt(++ties) == 0)
+                    best = -1 - d;
+            }
+        }
+        best_delta = min;
+        return best;
+    }
+
+    /* A random other container for c, as a move in the form getBestMove returns. */
+    int getRandomMove(int c){
+        int j = getRandomContainer(c);
+        if (Occupancy[j] < capacity)
+            return j;
+        return -1 - Members[j][getRandomNumber(0, Occupancy[j] - 1)];
+    }
+
+    int getRandomContainer(int c){
+        int j = getRandomNumber(0, num_containers - 2);
+        return j >= containerOf[c] ? j + 1 : j;
+    }
+
+    /*
+     * Runs up to max_flips moves from the loaded assignment, keeping the
+     * meaning of WalkSat's arguments: a conflicting chemical is picked at
+     * random and given its best move. When that move does not lower the
+     * number of violated edges, a random move is taken instead with
+     * probability p. moves is left at the number of moves made before the
+     * model was found.
+     */
+    boolean solve(double p, int max_flips){
+        int chemical, best;
+        for (moves = 0; moves < max_flips; moves++){
+            if (num_violated == 0)
+                return true;
+            if (Stop != null && (moves & 255) == 0 && Stop.get())
+                return false;
+            if (num_containers < 2)
+                return false;
+            chemical = Conflicting[getRandomNumber(0, num_conflicting - 1)];
+            best = getBestMove(chemical);
+            if (best_delta >= 0 && doRandom(p))
+                best = getRandomMove(chemical);
+            if (best >= 0)
+                move(chemical, best);
+            else
+                swap(chemical, -1 - best);
+            if (num_violated < best_violated)
+                keepBest();
+        }
+        return num_violated == 0;
+    }
+}
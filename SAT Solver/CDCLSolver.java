@@ -0,0 +1,579 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Conflict-driven clause learning over a ClauseStore.
+ *
+ * Clauses are watched on their first two literals; Watches[l] holds
+ * (clause, blocker) pairs for the clauses watching l, and is visited when l
+ * becomes false. Conflicts are analysed to the first UIP and the learnt clause
+ * is shrunk by recursive minimisation. Decisions come from an EVSIDS activity heap
+ * with phase saving, the search restarts on the Luby sequence, and half of the
+ * learnt clauses with the worst LBD are dropped whenever the learnt database
+ * outgrows max_learnts.
+ *
+ * Stop, when set, is polled every 256 conflicts; solve() then gives up and
+ * returns false without having refuted anything, and decide() reports
+ * STOPPED.
+ */
+class CDCLSolver{
+    public int num_variables;
+    public boolean Model[];
+    public long conflicts;
+    public long decisions;
+    public AtomicBoolean Stop;
+
+    private int Clauses[][];
+    private boolean Learnt[];
+    private double ClauseActivity[];
+    private int Lbd[];
+    private int num_clauses;
+    private int num_learnts;
+    private double max_learnts;
+    private double clause_inc;
+
+    private int Watches[][];
+    private int WatchSize[];
+
+    private int LitValue[];
+    private int Level[];
+    private int Reason[];
+    private int Trail[];
+    private int trail_size;
+    private int TrailLim[];
+    private int decision_level;
+    private int qhead;
+
+    private double Activity[];
+    private double var_inc;
+    private boolean Phase[];
+    private int Heap[];
+    private int HeapIndex[];
+    private int heap_size;
+
+    private boolean Seen[];
+    private int Learnt_lits[];
+    private int ToClear[];
+    private int toclear_size;
+    private int Stack[];
+    private int learnt_size;
+    private int LevelStamp[];
+    private int stamp;
+    private boolean ok;
+
+    static final int SATISFIABLE = 0;
+    static final int UNSATISFIABLE = 1;
+    static final int STOPPED = 2;
+
+    static final int RESTART_FIRST = 100;
+    static final double VAR_DECAY = 0.95;
+    static final double CLAUSE_DECAY = 0.999;
+
+    CDCLSolver(ClauseStore KB){
+        num_variables = KB.num_variables;
+        int num_literals = 2 * num_variables;
+
+        Clauses = new int[Math.max(16, KB.size() * 2)][];
+        Learnt = new boolean[Clauses.length];
+        ClauseActivity = new double[Clauses.length];
+        Lbd = new int[Clauses.length];
+        Watches = new int[num_literals][];
+        WatchSize = new int[num_literals];
+        for (int l = 0; l < num_literals; l++)
+            Watches[l] = new int[4];
+
+        LitValue = new int[num_literals];
+        Level = new int[num_variables];
+        Reason = new int[num_variables];
+        Trail = new int[num_variables];
+        TrailLim = new int[num_variables + 1];
+        Activity = new double[num_variables];
+        Phase = new boolean[num_variables];
+        Heap = new int[num_variables];
+        HeapIndex = new int[num_variables];
+        Seen = new boolean[num_variables];
+        Learnt_lits = new int[num_variables + 1];
+        ToClear = new int[num_variables + 1];
+        Stack = new int[num_variables];
+        LevelStamp = new int[num_variables + 1];
+        var_inc = 1.0;
+        clause_inc = 1.0;
+        ok = true;
+
+        Arrays.fill(Reason, -1);
+        for (int v = 0; v < num_variables; v++){
+            HeapIndex[v] = -1;
+            heapInsert(v);
+        }
+
+        int lits[];
+        for (int c = 0; c < KB.size() && ok; c++){
+            lits = Arrays.copyOfRange(KB.Literals, KB.Start[c], KB.Start[c + 1]);
+            addInputClause(lits);
+        }
+        max_learnts = Math.max(num_clauses / 3.0, 2000);
+    }
+
+    /* Solver for KB with every literal of Units asserted, as for one cube. */
+    CDCLSolver(ClauseStore KB, int[] Units){
+        this(KB);
+        for (int i = 0; i < Units.length && ok; i++)
+            addInputClause(new int[]{Units[i]});
+    }
+
+    /* Store clauses are sorted, so a complementary pair is always adjacent. */
+    private static boolean isTautology(int lits[]){
+        for (int i = 1; i < lits.length; i++){
+            if (lits[i] == ClauseStore.negate(lits[i - 1]))
+                return true;
+        }
+        return false;
+    }
+
+    private void addInputClause(int lits[]){
+        if (lits.length == 0){
+            ok = false;
+            return;
+        }
+        if (isTautology(lits))
+            return;
+        if (lits.length == 1){
+            if (LitValue[lits[0]] == -1)
+                ok = false;
+            else if (LitValue[lits[0]] == 0)
+                enqueue(lits[0], -1);
+            return;
+        }
+        attach(newClause(lits, false));
+    }
+
+    private int newClause(int lits[], boolean learnt){
+        if (num_clauses == Clauses.length){
+            int size = Clauses.length * 2;
+            Clauses = Arrays.copyOf(Clauses, size);
+            Learnt = Arrays.copyOf(Learnt, size);
+            ClauseActivity = Arrays.copyOf(ClauseActivity, size);
+            Lbd = Arrays.copyOf(Lbd, size);
+        }
+        int c = num_clauses++;
+        Clauses[c] = lits;
+        Learnt[c] = learnt;
+        ClauseActivity[c] = 0;
+        if (learnt)
+            num_learnts++;
+        return c;
+    }
+
+    private void attach(int c){
+        addWatch(Clauses[c][0], c, Clauses[c][1]);
+        addWatch(Clauses[c][1], c, Clauses[c][0]);
+    }
+
+    private void addWatch(int literal, int clause, int blocker){
+        int size = WatchSize[literal];
+        if (size + 2 > Watches[literal].length)
+            Watches[literal] = Arrays.copyOf(Watches[literal], Watches[literal].length * 2);
+        Watches[literal][size] = clause;
+        Watches[literal][size + 1] = blocker;
+        WatchSize[literal] = size + 2;
+    }
+
+    private void enqueue(int literal, int reason){
+        int v = ClauseStore.variable(literal);
+        LitValue[literal] = 1;
+        LitValue[ClauseStore.negate(literal)] = -1;
+        Level[v] = decision_level;
+        Reason[v] = reason;
+        Trail[trail_size++] = literal;
+    }
+
+    /* Returns the conflicting clause, or -1 once the trail is fully propagated. */
+    private int propagate(){
+        int FalseLiteral, ws[], n, i, j, c, blocker, lits[], first;
+        boolean found;
+
+        while (qhead < trail_size){
+            FalseLiteral = ClauseStore.negate(Trail[qhead++]);
+            ws = Watches[FalseLiteral];
+            n = WatchSize[FalseLiteral];
+            i = 0;
+            j = 0;
+            while (i < n){
+                c = ws[i];
+                blocker = ws[i + 1];
+                i += 2;
+                lits = Clauses[c];
+                if (lits == null)
+                    continue;
+                if (LitValue[blocker] == 1){
+                    ws[j++] = c;
+                    ws[j++] = blocker;
+                    continue;
+                }
+
+                if (lits[0] == FalseLiteral){
+                    lits[0] = lits[1];
+                    lits[1] = FalseLiteral;
+                }
+                first = lits[0];
+                if (first != blocker && LitValue[first] == 1){
+                    ws[j++] = c;
+                    ws[j++] = first;
+                    continue;
+                }
+
+                found = false;
+                for (int k = 2; k < lits.length; k++){
+                    if (LitValue[lits[k]] != -1){
+                        lits[1] = lits[k];
+                        lits[k] = FalseLiteral;
+                        addWatch(lits[1], c, first);
+                        found = true;
+                        break;
+                    }
+                }
+                if (found)
+                    continue;
+
+                ws[j++] = c;
+                ws[j++] = first;
+                if (LitValue[first] == -1){
+                    while (i < n)
+                        ws[j++] = ws[i++];
+                    WatchSize[FalseLiteral] = j;
+                    qhead = trail_size;
+                    return c;
+                }
+                enqueue(first, c);
+            }
+            WatchSize[FalseLiteral] = j;
+        }
+        return -1;
+    }
+
+    /*
+     * First-UIP analysis of the conflicting clause. Leaves the learnt clause in
+     * Learnt_lits[0..learnt_size) with the asserting literal first and a literal
+     * of the backtrack level second, and returns that level.
+     */
+    private int analyze(int conflict){
+        int pathC = 0, p = -1, index = trail_size - 1;
+        int lits[], q, v;
+        learnt_size = 1;
+
+        do {
+            lits = Clauses[conflict];
+            if (Learnt[conflict])
+                bumpClause(conflict);
+            for (int j = (p == -1) ? 0 : 1; j < lits.length; j++){
+                q = lits[j];
+                v = ClauseStore.variable(q);
+                if (!Seen[v] && Level[v] > 0){
+                    bumpVariable(v);
+                    Seen[v] = true;
+                    if (Level[v] >= decision_level)
+                        pathC++;
+                    else
+                        Learnt_lits[learnt_size++] = q;
+                }
+            }
+            while (!Seen[ClauseStore.variable(Trail[index--])]);
+            p = Trail[index + 1];
+            conflict = Reason[ClauseStore.variable(p)];
+            Seen[ClauseStore.variable(p)] = false;
+            pathC--;
+        } while (pathC > 0);
+        Learnt_lits[0] = ClauseStore.negate(p);
+
+        int size = learnt_size, kept = 1, levels = 0;
+        System.arraycopy(Learnt_lits, 0, ToClear, 0, size);
+        toclear_size = size;
+        for (int i = 1; i < size; i++)
+            levels |= abstractLevel(ClauseStore.variable(Learnt_lits[i]));
+        for (int i = 1; i < size; i++){
+            q = Learnt_lits[i];
+            if (Reason[ClauseStore.variable(q)] == -1 || !isRedundant(q, levels))
+                Learnt_lits[kept++] = q;
+        }
+        for (int i = 0; i < toclear_size; i++)
+            Seen[ClauseStore.variable(ToClear[i])] = false;
+        learnt_size = kept;
+
+        if (learnt_size == 1)
+            return 0;
+        int max = 1;
+        for (int i = 2; i < learnt_size; i++){
+            if (Level[ClauseStore.variable(Learnt_lits[i])] > Level[ClauseStore.variable(Learnt_lits[max])])
+                max = i;
+        }
+        q = Learnt_lits[max];
+        Learnt_lits[max] = Learnt_lits[1];
+        Learnt_lits[1] = q;
+        return Level[ClauseStore.variable(q)];
+    }
+
+    private int abstractLevel(int v){
+        return 1 << (Level[v] & 31);
+    }
+
+    /*
+     * A literal is redundant when its reasons lead back, transitively, only to
+     * literals already in the clause or fixed at level 0. levels is a bitmask of
+     * the clause's decision levels and cuts the search early.
+     */
+    private boolean isRedundant(int literal, int levels){
+        int stack_size = 0, top = toclear_size, lits[], q, v;
+        Stack[stack_size++] = literal;
+        while (stack_size > 0){
+            lits = Clauses[Reason[ClauseStore.variable(Stack[--stack_size])]];
+            for (int k = 1; k < lits.length; k++){
+                q = lits[k];
+                v = ClauseStore.variable(q);
+                if (Seen[v] || Level[v] == 0)
+                    continue;
+                if (Reason[v] != -1 && (abstractLevel(v) & levels) != 0){
+                    Seen[v] = true;
+                    Stack[stack_size++] = q;
+                    ToClear[toclear_size++] = q;
+                }
+                else {
+                    for (int j = top; j < toclear_size; j++)
+                        Seen[ClauseStore.variable(ToClear[j])] = false;
+                    toclear_size = top;
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int computeLbd(int lits[]){
+        int count = 0, level;
+        stamp++;
+        for (int l : lits){
+            level = Level[ClauseStore.variable(l)];
+            if (LevelStamp[level] != stamp){
+                LevelStamp[level] = stamp;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void cancelUntil(int level){
+        if (decision_level <= level)
+            return;
+        int v;
+        for (int c = trail_size - 1; c >= TrailLim[level]; c--){
+            v = ClauseStore.variable(Trail[c]);
+            Phase[v] = !ClauseStore.isNegated(Trail[c]);
+            LitValue[Trail[c]] = 0;
+            LitValue[ClauseStore.negate(Trail[c])] = 0;
+            Reason[v] = -1;
+            if (HeapIndex[v] < 0)
+                heapInsert(v);
+        }
+        trail_size = TrailLim[level];
+        qhead = trail_size;
+        decision_level = level;
+    }
+
+    private int pickBranchLiteral(){
+        int v;
+        while (heap_size > 0){
+            v = heapRemoveMax();
+            if (LitValue[ClauseStore.literal(v, false)] == 0)
+                return ClauseStore.literal(v, !Phase[v]);
+        }
+        return -1;
+    }
+
+    private void bumpVariable(int v){
+        Activity[v] += var_inc;
+        if (Activity[v] > 1e100){
+            for (int i = 0; i < num_variables; i++)
+                Activity[i] *= 1e-100;
+            var_inc *= 1e-100;
+        }
+        if (HeapIndex[v] >= 0)
+            heapUp(HeapIndex[v]);
+    }
+
+    private void bumpClause(int c){
+        ClauseActivity[c] += clause_inc;
+        if (ClauseActivity[c] > 1e20){
+            for (int i = 0; i < num_clauses; i++){
+                if (Learnt[i])
+                    ClauseActivity[i] *= 1e-20;
+            }
+            clause_inc *= 1e-20;
+        }
+    }
+
+    private boolean isLocked(int c){
+        int first = Clauses[c][0];
+        return LitValue[first] == 1 && Reason[ClauseStore.variable(first)] == c;
+    }
+
+    /* Drops half of the learnt clauses, worst LBD and activity first; glue clauses stay. */
+    private void reduceDB(){
+        Integer Candidates[] = new Integer[num_learnts];
+        int count = 0;
+        for (int c = 0; c < num_clauses; c++){
+            if (Learnt[c] && Clauses[c] != null)
+                Candidates[count++] = c;
+        }
+        Arrays.sort(Candidates, 0, count, (a, b) -> {
+            if (Lbd[a] != Lbd[b])
+                return Lbd[b] - Lbd[a];
+            return Double.compare(ClauseActivity[a], ClauseActivity[b]);
+        });
+        int c;
+        for (int i = 0; i < count / 2; i++){
+            c = Candidates[i];
+            if (Lbd[c] > 2 && !isLocked(c)){
+                Clauses[c] = null;
+                num_learnts--;
+            }
+        }
+    }
+
+    static double luby(double y, int x){
+        int size, seq;
+        for (size = 1, seq = 0; size < x + 1; seq++, size = 2 * size + 1);
+        while (size - 1 != x){
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return Math.pow(y, seq);
+    }
+
+    /* Returns 1 for a model, -1 for UNSAT and 0 when the restart budget runs out. */
+    private int search(long max_conflicts){
+        long conflictC = 0;
+        int conflict, level, lits[], c, next;
+
+        while (true){
+            conflict = propagate();
+            if (conflict != -1){
+                conflicts++;
+                conflictC++;
+                if (decision_level == 0)
+                    return -1;
+                if (Stop != null && (conflicts & 255) == 0 && Stop.get()){
+                    cancelUntil(0);
+                    return 0;
+                }
+
+                level = analyze(conflict);
+                cancelUntil(level);
+                if (learnt_size == 1)
+                    enqueue(Learnt_lits[0], -1);
+                else {
+                    lits = Arrays.copyOf(Learnt_lits, learnt_size);
+                    c = newClause(lits, true);
+                    Lbd[c] = computeLbd(lits);
+                    attach(c);
+                    bumpClause(c);
+                    enqueue(lits[0], c);
+                }
+                var_inc /= VAR_DECAY;
+                clause_inc /= CLAUSE_DECAY;
+            }
+            else {
+                if (conflictC >= max_conflicts){
+                    cancelUntil(0);
+                    return 0;
+                }
+                if (num_learnts - trail_size >= max_learnts){
+                    reduceDB();
+                    max_learnts *= 1.1;
+                }
+
+                next = pickBranchLiteral();
+                if (next == -1)
+                    return 1;
+
+                decisions++;
+                TrailLim[decision_level++] = trail_size;
+                enqueue(next, -1);
+            }
+        }
+    }
+
+    boolean solve(){
+        return decide() == SATISFIABLE;
+    }
+
+    /* SATISFIABLE with Model set, UNSATISFIABLE once refuted, or STOPPED when Stop ended the search first. */
+    int decide(){
+        if (!ok || propagate() != -1)
+            return UNSATISFIABLE;
+
+        int status = 0;
+        for (int restarts = 0; status == 0; restarts++){
+            if (Stop != null && Stop.get())
+                return STOPPED;
+            status = search((long)(luby(2, restarts) * RESTART_FIRST));
+        }
+
+        if (status < 0)
+            return UNSATISFIABLE;
+        Model = new boolean[num_variables];
+        for (int v = 0; v < num_variables; v++)
+            Model[v] = LitValue[ClauseStore.literal(v, false)] == 1;
+        cancelUntil(0);
+        return SATISFIABLE;
+    }
+
+    private boolean heapLess(int a, int b){
+        return Activity[a] > Activity[b];
+    }
+
+    private void heapInsert(int v){
+        HeapIndex[v] = heap_size;
+        Heap[heap_size++] = v;
+        heapUp(heap_size - 1);
+    }
+
+    private int heapRemoveMax(){
+        int top = Heap[0];
+        Heap[0] = Heap[--heap_size];
+        HeapIndex[Heap[0]] = 0;
+        HeapIndex[top] = -1;
+        if (heap_size > 1)
+            heapDown(0);
+        return top;
+    }
+
+    private void heapUp(int i){
+        int v = Heap[i], parent;
+        while (i > 0){
+            parent = (i - 1) >> 1;
+            if (!heapLess(v, Heap[parent]))
+                break;
+            Heap[i] = Heap[parent];
+            HeapIndex[Heap[i]] = i;
+            i = parent;
+        }
+        Heap[i] = v;
+        HeapIndex[v] = i;
+    }
+
+    private void heapDown(int i){
+        int v = Heap[i], child;
+        while (2 * i + 1 < heap_size){
+            child = 2 * i + 1;
+            if (child + 1 < heap_size && heapLess(Heap[child + 1], Heap[child]))
+                child++;
+            if (!heapLess(Heap[child], v))
+                break;
+            Heap[i] = Heap[child];
+            HeapIndex[Heap[i]] = i;
+            i = child;
+        }
+        Heap[i] = v;
+        HeapIndex[v] = i;
+    }
+}
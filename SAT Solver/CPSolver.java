@@ -0,0 +1,281 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Finite-domain search on the chemical graph itself, without building CNF.
+ *
+ * Together edges are contracted first (TogetherGroups), so every variable is
+ * a group with Weight[g] chemicals and the remaining constraints are != on
+ * the separate edges and a capacity bound on the total weight per container.
+ * Domain[g] is a bitmask of the containers still open to group g, which
+ * limits the engine to MAX_CONTAINERS containers.
+ *
+ * Assigning a group removes its container from its separate neighbours and,
+ * once Load[j] leaves no room for a group, from that group as well; a group
+ * left with one container is assigned in turn. Every change is trailed and
+ * undone on backtracking.
+ *
+ * Variables are chosen by dom/wdeg: domain size over one plus the failures
+ * charged to the group and to its edges towards unassigned groups. Empty
+ * containers are interchangeable, so only the first empty one is tried.
+ *
+ * Stop, when set, is polled every 256 nodes; solve() then returns false.
+ */
+class CPSolver{
+    static final int MAX_CONTAINERS = 64;
+
+    public int num_chemicals;
+    public int num_containers;
+    public int capacity;
+    public int containerOf[];
+    public long nodes;
+    public long failures;
+    public AtomicBoolean Stop;
+
+    private int Group[];
+    private int num_groups;
+    private int Weight[];
+    private int max_weight;
+    private boolean conflict;
+
+    private long Domain[];
+    private int Assigned[];
+    private int Load[];
+
+    private int Neighbors[];
+    private int NeighborEdge[];
+    private int NeighborStart[];
+    private int EdgeWeight[];
+    private int FailWeight[];
+
+    private int TrailGroup[];
+    private long TrailDomain[];
+    private boolean TrailAssigned[];
+    private int trail_size;
+
+    private int Queue[];
+    private int queue_size;
+
+    static boolean isApplicable(ChemicalGraph Graph){
+        return Graph.num_containers <= MAX_CONTAINERS;
+    }
+
+    CPSolver(ChemicalGraph Graph){
+        num_chemicals = Graph.num_chemicals;
+        num_containers = Graph.num_containers;
+        capacity = Graph.capacity;
+
+        TogetherGroups Groups = new TogetherGroups(Graph);
+        conflict = Groups.Conflict != null;
+        Group = Groups.Group;
+        num_groups = Groups.num_groups;
+        ChemicalGraph Reduced = Groups.reduce(Graph);
+        Weight = new int[num_groups];
+        for (int c = 0; c < num_chemicals; c++)
+            Weight[Group[c]]++;
+        for (int g = 0; g < num_groups; g++)
+            max_weight = Math.max(max_weight, Weight[g]);
+
+        NeighborStart = new int[num_groups + 1];
+        for (int e = 0; e < 2 * Reduced.num_separate; e++)
+            NeighborStart[Reduced.Separate[e] + 1]++;
+        for (int g = 0; g < num_groups; g++)
+            NeighborStart[g + 1] += NeighborStart[g];
+        int Next[] = new int[num_groups];
+        System.arraycopy(NeighborStart, 0, Next, 0, num_groups);
+        Neighbors = new int[NeighborStart[num_groups]];
+        NeighborEdge = new int[NeighborStart[num_groups]];
+        int a, b;
+        for (int e = 0; e < Reduced.num_separate; e++){
+            a = Reduced.Separate[2 * e];
+            b = Reduced.Separate[2 * e + 1];
+            NeighborEdge[Next[a]] = e;
+            Neighbors[Next[a]++] = b;
+            NeighborEdge[Next[b]] = e;
+            Neighbors[Next[b]++] = a;
+        }
+        EdgeWeight = new int[Reduced.num_separate];
+        FailWeight = new int[num_groups];
+
+        Domain = new long[num_groups];
+        Assigned = new int[num_groups];
+        Load = new int[num_containers];
+        TrailGroup = new int[16];
+        TrailDomain = new long[16];
+        TrailAssigned = new boolean[16];
+        Queue = new int[num_groups];
+    }
+
+    private void trail(int g, boolean assigned){
+        if (trail_size == TrailGroup.length){
+            TrailGroup = Arrays.copyOf(TrailGroup, trail_size * 2);
+            TrailDomain = Arrays.copyOf(TrailDomain, trail_size * 2);
+            TrailAssigned = Arrays.copyOf(TrailAssigned, trail_size * 2);
+        }
+        TrailGroup[trail_size] = g;
+        TrailDomain[trail_size] = Domain[g];
+        TrailAssigned[trail_size++] = assigned;
+    }
+
+    private void undo(int mark){
+        int g;
+        while (trail_size > mark){
+            g = TrailGroup[--trail_size];
+            if (TrailAssigned[trail_size]){
+                Load[Assigned[g]] -= Weight[g];
+                Assigned[g] = -1;
+            }
+            Domain[g] = TrailDomain[trail_size];
+        }
+    }
+
+    /* Removes container j from group g; false on a wipe-out. */
+    private boolean remove(int g, int j){
+        long bit = 1L << j;
+        if ((Domain[g] & bit) == 0)
+            return true;
+        trail(g, false);
+        Domain[g] &= ~bit;
+        if (Domain[g] == 0){
+            FailWeight[g]++;
+            return false;
+        }
+        if (Long.bitCount(Domain[g]) == 1)
+            Queue[queue_size++] = g;
+        return true;
+    }
+
+    private boolean assign(int g, int j){
+        if (Assigned[g] >= 0)
+            return Assigned[g] == j;
+        trail(g, true);
+        Domain[g] = 1L << j;
+        Assigned[g] = j;
+        Load[j] += Weight[g];
+        if (Load[j] > capacity){
+            FailWeight[g]++;
+            return false;
+        }
+
+        int h;
+        for (int i = NeighborStart[g]; i < NeighborStart[g + 1]; i++){
+            h = Neighbors[i];
+            if (Assigned[h] == j || (Assigned[h] < 0 && !remove(h, j))){
+                EdgeWeight[NeighborEdge[i]]++;
+                return false;
+            }
+        }
+        if (Load[j] + max_weight > capacity){
+            for (h = 0; h < num_groups; h++){
+                if (Assigned[h] < 0 && Load[j] + Weight[h] > capacity && !remove(h, j))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* Assigns g to j and every group that is left with a single container. */
+    private boolean propagate(int g, int j){
+        queue_size = 0;
+        if (!assign(g, j))
+            return false;
+        int h;
+        while (queue_size > 0){
+            h = Queue[--queue_size];
+            if (Assigned[h] < 0 && !assign(h, Long.numberOfTrailingZeros(Domain[h])))
+                return false;
+        }
+        return true;
+    }
+
+    /* Unassigned group with the smallest domain size over weighted degree, or -1. */
+    private int selectGroup(){
+        int best = -1;
+        double score, min = Double.MAX_VALUE;
+        int wdeg;
+        for (int g = 0; g < num_groups; g++){
+            if (Assigned[g] >= 0)
+                continue;
+            wdeg = 1 + FailWeight[g];
+            for (int i = NeighborStart[g]; i < NeighborStart[g + 1]; i++){
+                if (Assigned[Neighbors[i]] < 0)
+                    wdeg += 1 + EdgeWeight[NeighborEdge[i]];
+            }
+            score = (double)Long.bitCount(Domain[g]) / wdeg;
+            if (score < min){
+                min = score;
+                best = g;
+            }
+        }
+        return best;
+    }
+
+    /* Domain of g with every empty container but the first removed. */
+    private long getValues(int g){
+        long values = Domain[g];
+        boolean empty_seen = false;
+        for (int j = 0; j < num_containers; j++){
+            if (Load[j] != 0 || (values & (1L << j)) == 0)
+                continue;
+            if (empty_seen)
+                values &= ~(1L << j);
+            empty_seen = true;
+        }
+        return values;
+    }
+
+    /* Returns true and fills containerOf when every constraint can be met. */
+    boolean solve(){
+        if (conflict || (long)num_containers * capacity < num_chemicals)
+            return false;
+        long full = num_containers == 64 ? -1L : (1L << num_containers) - 1;
+        Arrays.fill(Domain, full);
+        Arrays.fill(Assigned, -1);
+        Arrays.fill(Load, 0);
+        trail_size = 0;
+
+        int StackGroup[] = new int[num_groups + 1];
+        int StackMark[] = new int[num_groups + 1];
+        long StackValues[] = new long[num_groups + 1];
+        int depth = 0, g, j;
+
+        g = selectGroup();
+        if (g < 0)
+            return setModel();
+        while (g >= 0){
+            StackGroup[depth] = g;
+            StackMark[depth] = trail_size;
+            StackValues[depth] = getValues(g);
+            depth++;
+
+            g = -1;
+            while (depth > 0){
+                undo(StackMark[depth - 1]);
+                if (StackValues[depth - 1] == 0){
+                    depth--;
+                    continue;
+                }
+                j = Long.numberOfTrailingZeros(StackValues[depth - 1]);
+                StackValues[depth - 1] &= ~(1L << j);
+                if (Stop != null && (nodes & 255) == 0 && Stop.get())
+                    return false;
+                nodes++;
+                if (propagate(StackGroup[depth - 1], j)){
+                    g = selectGroup();
+                    if (g < 0)
+                        return setModel();
+                    break;
+                }
+                failures++;
+            }
+        }
+        return false;
+    }
+
+    private boolean setModel(){
+        containerOf = new int[num_chemicals];
+        for (int c = 0; c < num_chemicals; c++)
+            containerOf[c] = Assigned[Group[c]];
+        return true;
+    }
+}
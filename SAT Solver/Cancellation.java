@@ -0,0 +1,37 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * One event that stops several engines. Every engine polls its own
+ * AtomicBoolean Stop; cancel() sets each flag handed to watch(), and a flag
+ * watched after cancel() is set at once. SATSolver shares one Cancellation
+ * between the components of a run, so that the first component to fail
+ * stops the others, and Deadline cancels from its timer thread.
+ */
+class Cancellation{
+    private List<AtomicBoolean> Flags;
+    private volatile boolean cancelled;
+
+    Cancellation(){
+        Flags = new ArrayList<>();
+    }
+
+    boolean cancelled(){
+        return cancelled;
+    }
+
+    synchronized void watch(AtomicBoolean Flag){
+        if (cancelled)
+            Flag.set(true);
+        else
+            Flags.add(Flag);
+    }
+
+    synchronized void cancel(){
+        cancelled = true;
+        for (AtomicBoolean Flag : Flags)
+            Flag.set(true);
+        Flags.clear();
+    }
+}
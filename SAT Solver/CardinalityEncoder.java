@@ -0,0 +1,346 @@
+import java.util.Arrays;
+
+/*
+ * At-most-one and at-most-k encodings over a list of literals.
+ *
+ * pairwise    one binary clause per pair, no auxiliary variables, O(n^2)
+ * sequential  Sinz's sequential counter: n - 1 auxiliaries, 3n - 4 clauses
+ * commander   groups of three under one commander each, recursing on the
+ *             commanders: about n/2 auxiliaries and 3n clauses
+ * product     Chen's 2-product: the literals laid out on a p x q grid, each
+ *             implying its row and its column, with at-most-one recursively
+ *             on rows and columns: about 2*sqrt(n) auxiliaries, 2n clauses
+ *
+ * At most k of n literals:
+ *
+ * binomial    one clause of k + 1 negated literals per (k+1)-subset,
+ *             C(n, k+1) clauses and no auxiliaries
+ * sequential  Sinz's sequential counter: registers S[i][j] meaning "at least
+ *             j + 1 of Literals[0..i] are true", O(nk) clauses and variables
+ * totalizer   Bailleux and Boufkhad's totalizer: a binary tree of unary
+ *             counters cut off at k + 1, O(n log n) variables, O(nk) clauses
+ * network     a cardinality network after Asin et al.: blocks of k + 1
+ *             inputs sorted by odd-even merge sort and merged into a running
+ *             k + 1 largest, O(n log^2 k) clauses, with only the comparator
+ *             clauses that propagate upwards
+ *
+ * Auxiliary variables are taken from KB.newVariable(), so they are numbered
+ * after the placement variables and a model of the placement variables is
+ * read the same way under every encoding.
+ */
+class CardinalityEncoder{
+    static final String AUTO = "auto";
+    static final String PAIRWISE = "pairwise";
+    static final String SEQUENTIAL = "sequential";
+    static final String COMMANDER = "commander";
+    static final String PRODUCT = "product";
+
+    static final String BINOMIAL = "binomial";
+    static final String TOTALIZER = "totalizer";
+    static final String NETWORK = "network";
+
+    static final String ENCODINGS[] = {AUTO, PAIRWISE, SEQUENTIAL, COMMANDER, PRODUCT};
+    static final String AT_MOST_K_ENCODINGS[] = {AUTO, BINOMIAL, SEQUENTIAL, TOTALIZER, NETWORK};
+
+    /* Stands for a constant false input inside the cardinality network. */
+    private static final int FALSE = -1;
+
+    /*
+     * Encoding used for n literals when AUTO is asked for. Pairwise is the
+     * smallest up to six literals and needs no auxiliaries; the sequential
+     * counter propagates as well as pairwise at medium sizes; past 64 the
+     * product encoding keeps the auxiliary count down to O(sqrt(n)).
+     */
+    static String choose(int n){
+        if (n <= 6)
+            return PAIRWISE;
+        if (n <= 64)
+            return SEQUENTIAL;
+        return PRODUCT;
+    }
+
+    static void addExactlyOne(ClauseStore KB, int Literals[], int n, String encoding){
+        KB.addClause(Literals, n);
+        addAtMostOne(KB, Literals, n, encoding);
+    }
+
+    static void addAtMostOne(ClauseStore KB, int Literals[], int n, String encoding){
+        if (encoding.equals(AUTO))
+            encoding = choose(n);
+        if (n <= 1)
+            return;
+        if (encoding.equals(PAIRWISE))
+            addPairwise(KB, Literals, n);
+        else if (encoding.equals(SEQUENTIAL))
+            addSequential(KB, Literals, n);
+        else if (encoding.equals(COMMANDER))
+            addCommander(KB, Literals, n);
+        else if (encoding.equals(PRODUCT))
+            addProduct(KB, Literals, n);
+        else
+            throw new IllegalArgumentException("Unknown cardinality encoding " + encoding);
+    }
+
+    /*
+     * The recursive step of commander and product, which ends in pairwise
+     * once n <= 4; an explicit choice still applies at the top level.
+     */
+    private static void addAtMostOneRecursive(ClauseStore KB, int Literals[], int n, String encoding){
+        if (n <= 4)
+            addPairwise(KB, Literals, n);
+        else
+            addAtMostOne(KB, Literals, n, encoding);
+    }
+
+    private static void addPairwise(ClauseStore KB, int Literals[], int n){
+        for (int j = 0; j < n; j++){
+            for (int k = j + 1; k < n; k++){
+                KB.addClause(ClauseStore.negate(Literals[j]), ClauseStore.negate(Literals[k]));
+            }
+        }
+    }
+
+    /* S[i] is true when one of Literals[0..i] is true. */
+    private static void addSequential(ClauseStore KB, int Literals[], int n){
+        int previous = ClauseStore.literal(KB.newVariable(), false), current;
+        KB.addClause(ClauseStore.negate(Literals[0]), previous);
+        for (int i = 1; i < n - 1; i++){
+            current = ClauseStore.literal(KB.newVariable(), false);
+            KB.addClause(ClauseStore.negate(Literals[i]), current);
+            KB.addClause(ClauseStore.negate(previous), current);
+            KB.addClause(ClauseStore.negate(Literals[i]), ClauseStore.negate(previous));
+            previous = current;
+        }
+        KB.addClause(ClauseStore.negate(Literals[n - 1]), ClauseStore.negate(previous));
+    }
+
+    /*
+     * The commander of a group is true iff one of its literals is; the
+     * literals of a group are pairwise exclusive and the commanders are
+     * encoded the same way until few enough remain for pairwise.
+     */
+    private static void addCommander(ClauseStore KB, int Literals[], int n){
+        int Commanders[] = new int[(n + 2) / 3];
+        int Clause[] = new int[4];
+        int num_commanders = 0, size, commander;
+        for (int start = 0; start < n; start += 3){
+            size = Math.min(3, n - start);
+            commander = ClauseStore.literal(KB.newVariable(), false);
+            Clause[0] = ClauseStore.negate(commander);
+            for (int j = 0; j < size; j++){
+                Clause[j + 1] = Literals[start + j];
+                KB.addClause(ClauseStore.negate(Literals[start + j]), commander);
+                for (int k = j + 1; k < size; k++){
+                    KB.addClause(ClauseStore.negate(Literals[start + j]), ClauseStore.negate(Literals[start + k]));
+                }
+            }
+            KB.addClause(Clause, size + 1);
+            Commanders[num_commanders++] = commander;
+        }
+        addAtMostOneRecursive(KB, Commanders, num_commanders, COMMANDER);
+    }
+
+    private static void addProduct(ClauseStore KB, int Literals[], int n){
+        int p = (int)Math.ceil(Math.sqrt(n));
+        int q = (n + p - 1) / p;
+        int Rows[] = new int[p];
+        int Columns[] = new int[q];
+        for (int r = 0; r < p; r++)
+            Rows[r] = ClauseStore.literal(KB.newVariable(), false);
+        for (int c = 0; c < q; c++)
+            Columns[c] = ClauseStore.literal(KB.newVariable(), false);
+        for (int i = 0; i < n; i++){
+            KB.addClause(ClauseStore.negate(Literals[i]), Rows[i / q]);
+            KB.addClause(ClauseStore.negate(Literals[i]), Columns[i % q]);
+        }
+        addAtMostOneRecursive(KB, Rows, p, PRODUCT);
+        addAtMostOneRecursive(KB, Columns, q, PRODUCT);
+    }
+
+    /*
+     * Encoding used for at most k of n literals when AUTO is asked for. The
+     * binomial clauses are kept while there are no more of them than the
+     * sequential counter would add; the counter is used up to k = 16 and
+     * the network, which grows with log^2 k instead of k, beyond that.
+     */
+    static String chooseAtMostK(int n, int k){
+        long subsets = 1;
+        for (int i = 0; i <= k && subsets <= 2L * n * (k + 1); i++)
+            subsets = subsets * (n - i) / (i + 1);
+        if (subsets <= 2L * n * (k + 1))
+            return BINOMIAL;
+        if (k <= 16)
+            return SEQUENTIAL;
+        return NETWORK;
+    }
+
+    static void addAtMostK(ClauseStore KB, int Literals[], int n, int k, String encoding){
+        if (k >= n)
+            return;
+        if (k == 0){
+            for (int i = 0; i < n; i++)
+                KB.addClause(ClauseStore.negate(Literals[i]));
+            return;
+        }
+        if (encoding.equals(AUTO))
+            encoding = chooseAtMostK(n, k);
+        if (encoding.equals(BINOMIAL))
+            addBinomial(KB, Literals, n, 0, k + 1, new int[k + 1], 0);
+        else if (encoding.equals(SEQUENTIAL))
+            addSequentialCounter(KB, Literals, n, k);
+        else if (encoding.equals(TOTALIZER))
+            addTotalizer(KB, Literals, n, k);
+        else if (encoding.equals(NETWORK))
+            addCardinalityNetwork(KB, Literals, n, k);
+        else
+            throw new IllegalArgumentException("Unknown cardinality encoding " + encoding);
+    }
+
+    /* Adds one clause of negated literals for every size-subset of Literals[start..n-1]. */
+    private static void addBinomial(ClauseStore KB, int Literals[], int n, int start, int size, int Clause[], int length){
+        for (int i = start; i <= n - size; i++){
+            Clause[length] = ClauseStore.negate(Literals[i]);
+            if (size == 1)
+                KB.addClause(Clause, length + 1);
+            else
+                addBinomial(KB, Literals, n, i + 1, size - 1, Clause, length + 1);
+        }
+    }
+
+    private static void addSequentialCounter(ClauseStore KB, int Literals[], int n, int k){
+        int Previous[] = new int[k];
+        int Current[] = new int[k];
+        int Swap[];
+        Previous[0] = ClauseStore.literal(KB.newVariable(), false);
+        KB.addClause(ClauseStore.negate(Literals[0]), Previous[0]);
+        for (int j = 1; j < k; j++){
+            Previous[j] = ClauseStore.literal(KB.newVariable(), false);
+            KB.addClause(ClauseStore.negate(Previous[j]));
+        }
+
+        int x;
+        for (int i = 1; i < n - 1; i++){
+            x = ClauseStore.negate(Literals[i]);
+            for (int j = 0; j < k; j++)
+                Current[j] = ClauseStore.literal(KB.newVariable(), false);
+            KB.addClause(x, Current[0]);
+            KB.addClause(ClauseStore.negate(Previous[0]), Current[0]);
+            for (int j = 1; j < k; j++){
+                KB.addClause(x, ClauseStore.negate(Previous[j - 1]), Current[j]);
+                KB.addClause(ClauseStore.negate(Previous[j]), Current[j]);
+            }
+            KB.addClause(x, ClauseStore.negate(Previous[k - 1]));
+            Swap = Previous;
+            Previous = Current;
+            Current = Swap;
+        }
+        KB.addClause(ClauseStore.negate(Literals[n - 1]), ClauseStore.negate(Previous[k - 1]));
+    }
+
+    /*
+     * Output[j] of a node means "at least j + 1 of the leaves below are true",
+     * for j up to k; a count of k + 1 at the root is forbidden.
+     */
+    private static void addTotalizer(ClauseStore KB, int Literals[], int n, int k){
+        int Root[] = totalize(KB, Literals, 0, n, k + 1);
+        KB.addClause(ClauseStore.negate(Root[k]));
+    }
+
+    private static int[] totalize(ClauseStore KB, int Literals[], int from, int to, int limit){
+        if (to - from == 1)
+            return new int[]{Literals[from]};
+        int middle = (from + to) / 2;
+        int Left[] = totalize(KB, Literals, from, middle, limit);
+        int Right[] = totalize(KB, Literals, middle, to, limit);
+        int Output[] = new int[Math.min(to - from, limit)];
+        for (int j = 0; j < Output.length; j++)
+            Output[j] = ClauseStore.literal(KB.newVariable(), false);
+
+        for (int a = 0; a <= Left.length; a++){
+            for (int b = 0; b <= Right.length; b++){
+                if (a + b == 0 || a + b > Output.length)
+                    continue;
+                if (a == 0)
+                    KB.addClause(ClauseStore.negate(Right[b - 1]), Output[b - 1]);
+                else if (b == 0)
+                    KB.addClause(ClauseStore.negate(Left[a - 1]), Output[a - 1]);
+                else
+                    KB.addClause(ClauseStore.negate(Left[a - 1]), ClauseStore.negate(Right[b - 1]), Output[a + b - 1]);
+            }
+        }
+        return Output;
+    }
+
+    /*
+     * The inputs are cut into blocks of m, the smallest power of two above k,
+     * padded with FALSE. Each block is sorted, true first, and merged into the
+     * running top m of the blocks before it; output k of the result is true
+     * whenever more than k inputs are.
+     */
+    private static void addCardinalityNetwork(ClauseStore KB, int Literals[], int n, int k){
+        int m = 1;
+        while (m <= k)
+            m *= 2;
+        int Top[] = null, Block[] = new int[m];
+        for (int start = 0; start < n; start += m){
+            for (int i = 0; i < m; i++)
+                Block[i] = start + i < n ? Literals[start + i] : FALSE;
+            Block = sort(KB, Block);
+            Top = Top == null ? Block.clone() : Arrays.copyOf(merge(KB, Top, Block), m);
+        }
+        KB.addClause(ClauseStore.negate(Top[k]));
+    }
+
+    private static int[] sort(ClauseStore KB, int Input[]){
+        if (Input.length == 1)
+            return Input.clone();
+        int half = Input.length / 2;
+        return merge(KB, sort(KB, Arrays.copyOfRange(Input, 0, half)),
+                sort(KB, Arrays.copyOfRange(Input, half, Input.length)));
+    }
+
+    /* Batcher's odd-even merge of two sorted sequences of the same power-of-two length. */
+    private static int[] merge(ClauseStore KB, int A[], int B[]){
+        int m = A.length;
+        int Output[] = new int[2 * m];
+        if (m == 1){
+            comparator(KB, A[0], B[0], Output, 0);
+            return Output;
+        }
+        int AOdd[] = new int[m / 2], AEven[] = new int[m / 2];
+        int BOdd[] = new int[m / 2], BEven[] = new int[m / 2];
+        for (int i = 0; i < m / 2; i++){
+            AOdd[i] = A[2 * i];
+            AEven[i] = A[2 * i + 1];
+            BOdd[i] = B[2 * i];
+            BEven[i] = B[2 * i + 1];
+        }
+        int Odd[] = merge(KB, AOdd, BOdd);
+        int Even[] = merge(KB, AEven, BEven);
+        Output[0] = Odd[0];
+        Output[2 * m - 1] = Even[m - 1];
+        for (int i = 0; i < m - 1; i++)
+            comparator(KB, Even[i], Odd[i + 1], Output, 2 * i + 1);
+        return Output;
+    }
+
+    /*
+     * Writes max(a, b) and min(a, b) to Output[at] and Output[at + 1]. Only
+     * the clauses that push truth upwards are needed for an upper bound; a
+     * FALSE input makes the comparator a plain wire.
+     */
+    private static void comparator(ClauseStore KB, int a, int b, int Output[], int at){
+        if (a == FALSE || b == FALSE){
+            Output[at] = a == FALSE ? b : a;
+            Output[at + 1] = FALSE;
+            return;
+        }
+        int max = ClauseStore.literal(KB.newVariable(), false);
+        int min = ClauseStore.literal(KB.newVariable(), false);
+        KB.addClause(ClauseStore.negate(a), max);
+        KB.addClause(ClauseStore.negate(b), max);
+        KB.addClause(ClauseStore.negate(a), ClauseStore.negate(b), min);
+        Output[at] = max;
+        Output[at + 1] = min;
+    }
+}
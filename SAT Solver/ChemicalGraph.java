@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+/*
+ * The constraint matrix of an input, kept as edge lists before any clause is
+ * built. Together holds the pairs of +1 entries and Separate the pairs of -1
+ * entries, two ints per pair. capacity bounds the chemicals per container;
+ * it is num_chemicals, no bound at all, unless the input gives one.
+ */
+class ChemicalGraph{
+    public int num_chemicals;
+    public int num_containers;
+    public int capacity;
+    public int Together[];
+    public int num_together;
+    public int Separate[];
+    public int num_separate;
+
+    ChemicalGraph(int num_chemicals, int num_containers){
+        this.num_chemicals = num_chemicals;
+        this.num_containers = num_containers;
+        capacity = num_chemicals;
+        Together = new int[16];
+        Separate = new int[16];
+    }
+
+    void addTogether(int chemical1, int chemical2){
+        if (2 * num_together + 2 > Together.length)
+            Together = Arrays.copyOf(Together, Together.length * 2);
+        Together[2 * num_together] = chemical1;
+        Together[2 * num_together + 1] = chemical2;
+        num_together++;
+    }
+
+    void addSeparate(int chemical1, int chemical2){
+        if (2 * num_separate + 2 > Separate.length)
+            Separate = Arrays.copyOf(Separate, Separate.length * 2);
+        Separate[2 * num_separate] = chemical1;
+        Separate[2 * num_separate + 1] = chemical2;
+        num_separate++;
+    }
+
+    /*
+     * Chemical order for symmetry breaking: a greedy clique of separate
+     * edges first, highest degree first, then the other chemicals by
+     * decreasing separate degree. Placing the clique first lets the
+     * "position i uses a container <= i" rule fix the whole clique.
+     */
+    int[] symmetryOrder(){
+        int Start[] = new int[num_chemicals + 1];
+        for (int e = 0; e < 2 * num_separate; e++)
+            Start[Separate[e] + 1]++;
+        for (int c = 0; c < num_chemicals; c++)
+            Start[c + 1] += Start[c];
+        int Next[] = Arrays.copyOf(Start, num_chemicals);
+        int Neighbors[] = new int[Start[num_chemicals]];
+        int a, b;
+        for (int e = 0; e < num_separate; e++){
+            a = Separate[2 * e];
+            b = Separate[2 * e + 1];
+            Neighbors[Next[a]++] = b;
+            Neighbors[Next[b]++] = a;
+        }
+
+        /* Sorted lists drop repeated edges, so Degree counts distinct neighbours. */
+        int Degree[] = new int[num_chemicals];
+        for (int c = 0; c < num_chemicals; c++){
+            Arrays.sort(Neighbors, Start[c], Start[c + 1]);
+            for (int i = Start[c]; i < Start[c + 1]; i++){
+                if (Degree[c] == 0 || Neighbors[i] != Neighbors[Start[c] + Degree[c] - 1])
+                    Neighbors[Start[c] + Degree[c]++] = Neighbors[i];
+            }
+        }
+
+        Integer ByDegree[] = new Integer[num_chemicals];
+        for (int c = 0; c < num_chemicals; c++)
+            ByDegree[c] = c;
+        Arrays.sort(ByDegree, (x, y) -> Degree[y] - Degree[x]);
+
+        /* Count[c] is the number of clique members adjacent to c, so c extends the clique when it equals the size. */
+        int Order[] = new int[num_chemicals];
+        boolean Placed[] = new boolean[num_chemicals];
+        int Count[] = new int[num_chemicals];
+        int size = 0;
+        for (int c : ByDegree){
+            if (Count[c] != size)
+                continue;
+            Order[size++] = c;
+            Placed[c] = true;
+            for (int i = Start[c]; i < Start[c] + Degree[c]; i++)
+                Count[Neighbors[i]]++;
+        }
+        for (int c : ByDegree){
+            if (!Placed[c])
+                Order[size++] = c;
+        }
+        return Order;
+    }
+}
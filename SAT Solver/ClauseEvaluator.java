@@ -0,0 +1,95 @@
+/*
+ * Checks a whole assignment against a ClauseStore in one pass. Binary
+ * clauses, which make up most of every KB here, are copied into the
+ * parallel literal arrays First and Second; Other lists the remaining
+ * clauses, which are checked literal by literal.
+ *
+ * Values holds 1 for every true literal and 0 for every false one, so
+ * binary clause i is false exactly when Values[First[i]] | Values[Second[i]]
+ * is 0. falseBinary() sums that test without a branch on the data here,
+ * and runs it with gathers of the incubating Vector API in
+ * VectorClauseEvaluator, which create() loads when the JVM has the
+ * jdk.incubator.vector module. That class is compiled separately with
+ * --add-modules jdk.incubator.vector and is never referenced by name, so
+ * the programs build and run without it.
+ */
+class ClauseEvaluator{
+    public ClauseStore KB;
+    public int First[];
+    public int Second[];
+    public int num_binary;
+    public int Other[];
+    public int num_other;
+
+    ClauseEvaluator(ClauseStore KB){
+        this.KB = KB;
+        for (int c = 0; c < KB.size(); c++){
+            if (KB.clauseLength(c) == 2)
+                num_binary++;
+        }
+        num_other = KB.size() - num_binary;
+        First = new int[num_binary];
+        Second = new int[num_binary];
+        Other = new int[num_other];
+        int b = 0, o = 0;
+        for (int c = 0; c < KB.size(); c++){
+            if (KB.clauseLength(c) == 2){
+                First[b] = KB.Literals[KB.Start[c]];
+                Second[b++] = KB.Literals[KB.Start[c] + 1];
+            }
+            else
+                Other[o++] = c;
+        }
+    }
+
+    /* The vector evaluator when the Vector API is available, the scalar one otherwise. */
+    static ClauseEvaluator create(ClauseStore KB){
+        try {
+            return (ClauseEvaluator)Class.forName("VectorClauseEvaluator").getDeclaredConstructor(ClauseStore.class).newInstance(KB);
+        }
+        catch (ReflectiveOperationException | LinkageError e){
+            return new ClauseEvaluator(KB);
+        }
+    }
+
+    /* Value of every literal under Assignment, 1 for true and 0 for false. */
+    int[] literalValues(boolean[] Assignment){
+        int Values[] = new int[2 * KB.num_variables];
+        for (int v = 0; v < KB.num_variables; v++){
+            Values[ClauseStore.literal(v, !Assignment[v])] = 1;
+        }
+        return Values;
+    }
+
+    /*
+     * Number of false binary clauses under Values. When False is not null,
+     * False[i] is set to whether binary clause i is false.
+     */
+    int falseBinary(int[] Values, boolean[] False){
+        int count = 0, unsatisfied;
+        for (int i = 0; i < num_binary; i++){
+            unsatisfied = (Values[First[i]] | Values[Second[i]]) ^ 1;
+            if (False != null)
+                False[i] = unsatisfied != 0;
+            count += unsatisfied;
+        }
+        return count;
+    }
+
+    /* Number of clauses of KB that Assignment leaves false. */
+    int countFalse(boolean[] Assignment){
+        int Values[] = literalValues(Assignment);
+        int count = falseBinary(Values, null);
+        int c;
+        boolean satisfied;
+        for (int o = 0; o < num_other; o++){
+            c = Other[o];
+            satisfied = false;
+            for (int i = KB.Start[c]; i < KB.Start[c + 1] && !satisfied; i++)
+                satisfied = Values[KB.Literals[i]] != 0;
+            if (!satisfied)
+                count++;
+        }
+        return count;
+    }
+}
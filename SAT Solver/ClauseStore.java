@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/*
+ * Flat clause arena used in place of CNFClause/ClauseLiteral/Literal objects.
+ *
+ * A literal is a packed int: (variable << 1) | negated. Placement symbols use
+ * variable = chemical*num_containers + container; auxiliary symbols added by
+ * encodings are numbered after them through newVariable().
+ *
+ * Clause c occupies Literals[Start[c]] .. Literals[Start[c+1] - 1], sorted and
+ * without repeated literals, so two clauses are equal iff their ranges are.
+ * Duplicates are rejected through an open-addressing table of clause ids.
+ */
+class ClauseStore{
+    public int num_variables;
+    public int num_clauses;
+    public int Literals[];
+    public int Start[];
+
+    private int Hashes[];
+    private int Table[];
+    private int TableMask;
+    private int Buffer[];
+
+    ClauseStore(int num_variables){
+        this.num_variables = num_variables;
+        num_clauses = 0;
+        Literals = new int[64];
+        Start = new int[17];
+        Hashes = new int[16];
+        Table = new int[32];
+        Arrays.fill(Table, -1);
+        TableMask = Table.length - 1;
+        Buffer = new int[16];
+    }
+
+    ClauseStore(ClauseStore other){
+        num_variables = other.num_variables;
+        num_clauses = other.num_clauses;
+        Literals = other.Literals.clone();
+        Start = other.Start.clone();
+        Hashes = other.Hashes.clone();
+        Table = other.Table.clone();
+        TableMask = other.TableMask;
+        Buffer = new int[other.Buffer.length];
+    }
+
+    static int literal(int variable, boolean isNegated){
+        return (variable << 1) | (isNegated ? 1 : 0);
+    }
+
+    static int variable(int literal){
+        return literal >>> 1;
+    }
+
+    static boolean isNegated(int literal){
+        return (literal & 1) != 0;
+    }
+
+    static int negate(int literal){
+        return literal ^ 1;
+    }
+
+    int newVariable(){
+        return num_variables++;
+    }
+
+    int size(){
+        return num_clauses;
+    }
+
+    int clauseLength(int clause){
+        return Start[clause + 1] - Start[clause];
+    }
+
+    /*
+     * Adds the clause made of the first length entries of lits. Repeated
+     * literals are merged. Returns false if the clause was already stored.
+     */
+    boolean addClause(int lits[], int length){
+        length = normalize(lits, length);
+        int hash = hash(Buffer, 0, length);
+        if (find(Buffer, 0, length, hash) >= 0)
+            return false;
+
+        if (num_clauses + 1 >= Start.length)
+            Start = Arrays.copyOf(Start, Start.length * 2);
+        if (num_clauses >= Hashes.length)
+            Hashes = Arrays.copyOf(Hashes, Hashes.length * 2);
+        int end = Start[num_clauses];
+        if (end + length > Literals.length)
+            Literals = Arrays.copyOf(Literals, Math.max(Literals.length * 2, end + length));
+
+        System.arraycopy(Buffer, 0, Literals, end, length);
+        Start[num_clauses + 1] = end + length;
+        Hashes[num_clauses] = hash;
+        insert(num_clauses, hash);
+        num_clauses++;
+
+        if (num_clauses * 2 > Table.length)
+            rehash();
+        return true;
+    }
+
+    boolean addClause(int... lits){
+        return addClause(lits, lits.length);
+    }
+
+    boolean contains(int lits[], int length){
+        length = normalize(lits, length);
+        return find(Buffer, 0, length, hash(Buffer, 0, length)) >= 0;
+    }
+
+    /* True if every clause of other is also stored here. */
+    boolean containsAll(ClauseStore other){
+        for (int c = 0; c < other.num_clauses; c++){
+            int start = other.Start[c], end = other.Start[c + 1];
+            if (find(other.Literals, start, end - start, other.Hashes[c]) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    void addAll(ClauseStore other){
+        for (int c = 0; c < other.num_clauses; c++){
+            int start = other.Start[c];
+            int length = other.Start[c + 1] - start;
+            if (Buffer.length < length)
+                Buffer = new int[length * 2];
+            System.arraycopy(other.Literals, start, Buffer, 0, length);
+            addClause(Buffer, length);
+        }
+    }
+
+    private int normalize(int lits[], int length){
+        if (Buffer.length < length)
+            Buffer = new int[length * 2];
+        if (lits != Buffer)
+            System.arraycopy(lits, 0, Buffer, 0, length);
+        Arrays.sort(Buffer, 0, length);
+        int unique = 0;
+        for (int i = 0; i < length; i++){
+            if (unique == 0 || Buffer[unique - 1] != Buffer[i])
+                Buffer[unique++] = Buffer[i];
+        }
+        return unique;
+    }
+
+    private static int hash(int lits[], int start, int length){
+        int hash = 0x811C9DC5;
+        for (int i = start; i < start + length; i++){
+            hash ^= lits[i];
+            hash *= 0x01000193;
+        }
+        return hash ^ length;
+    }
+
+    private int find(int lits[], int start, int length, int hash){
+        int slot = mix(hash) & TableMask;
+        int clause;
+        while ((clause = Table[slot]) != -1){
+            if (Hashes[clause] == hash && equalsRange(clause, lits, start, length))
+                return clause;
+            slot = (slot + 1) & TableMask;
+        }
+        return -1;
+    }
+
+    private boolean equalsRange(int clause, int lits[], int start, int length){
+        int begin = Start[clause];
+        if (Start[clause + 1] - begin != length)
+            return false;
+        for (int i = 0; i < length; i++){
+            if (Literals[begin + i] != lits[start + i])
+                return false;
+        }
+        return true;
+    }
+
+    private void insert(int clause, int hash){
+        int slot = mix(hash) & TableMask;
+        while (Table[slot] != -1)
+            slot = (slot + 1) & TableMask;
+        Table[slot] = clause;
+    }
+
+    private void rehash(){
+        Table = new int[Table.length * 2];
+        Arrays.fill(Table, -1);
+        TableMask = Table.length - 1;
+        for (int c = 0; c < num_clauses; c++)
+            insert(c, Hashes[c]);
+    }
+
+    private static int mix(int hash){
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+}
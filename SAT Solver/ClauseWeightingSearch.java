@@ -0,0 +1,278 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Clause-weighting local search over a ClauseStore, after PAWS (Thornton et
+ * al., pure additive weighting).
+ *
+ * Every clause has an integer Weight, initially 1. Make[v] and Break[v] hold
+ * the total weight of the clauses a flip of v would satisfy and break, kept
+ * up to date by flip() the same way LocalSearch keeps its counts, and
+ * Improving lists the variables whose make exceeds their break. Each step
+ * flips the variable with the largest weighted gain. At a local minimum a
+ * zero-gain variable of a false clause is flipped with probability P_FLAT;
+ * otherwise every false clause gains one unit of weight, and every MAX_INC
+ * such increases each weighted clause loses one unit again. The weights
+ * lift the walk out of plateaus that unweighted scores cannot tell apart.
+ *
+ * Stop, when set, is polled every 256 steps, and Best and best_unsat keep
+ * the assignment with the fewest false clauses seen, like in LocalSearch.
+ */
+class ClauseWeightingSearch{
+    static final double P_FLAT = 0.15;
+    static final int MAX_INC = 10;
+
+    public ClauseStore KB;
+    public boolean Assignment[];
+    public int Weight[];
+    public int TrueCount[];
+    public int TrueXor[];
+    public int Break[];
+    public int Make[];
+    public int Unsat[];
+    public int UnsatIndex[];
+    public int num_unsat;
+    public int Improving[];
+    public int ImprovingIndex[];
+    public int num_improving;
+    public int Occurrences[];
+    public int OccurrenceStart[];
+    public int flips;
+    public int increases;
+    public boolean Best[];
+    public int best_unsat;
+    public Random randomGenerator;
+    public AtomicBoolean Stop;
+
+    ClauseWeightingSearch(ClauseStore KB, Random randomGenerator){
+        this.KB = KB;
+        this.randomGenerator = randomGenerator;
+        Assignment = new boolean[KB.num_variables];
+        Weight = new int[KB.size()];
+        TrueCount = new int[KB.size()];
+        TrueXor = new int[KB.size()];
+        Break = new int[KB.num_variables];
+        Make = new int[KB.num_variables];
+        Unsat = new int[KB.size()];
+        UnsatIndex = new int[KB.size()];
+        Improving = new int[KB.num_variables];
+        ImprovingIndex = new int[KB.num_variables];
+        Best = new boolean[KB.num_variables];
+
+        int num_literals = 2 * KB.num_variables;
+        OccurrenceStart = new int[num_literals + 1];
+        for (int i = 0; i < KB.Start[KB.size()]; i++)
+            OccurrenceStart[KB.Literals[i] + 1]++;
+        for (int l = 0; l < num_literals; l++)
+            OccurrenceStart[l + 1] += OccurrenceStart[l];
+
+        int Next[] = new int[num_literals];
+        System.arraycopy(OccurrenceStart, 0, Next, 0, num_literals);
+        Occurrences = new int[KB.Start[KB.size()]];
+        for (int c = 0; c < KB.size(); c++){
+            for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++)
+                Occurrences[Next[KB.Literals[i]]++] = c;
+        }
+    }
+
+    int getRandomNumber(int start, int end){
+        return start + randomGenerator.nextInt(end - start + 1);
+    }
+
+    boolean isTrue(int literal){
+        return Assignment[ClauseStore.variable(literal)] != ClauseStore.isNegated(literal);
+    }
+
+    /* Loads a complete assignment, resets every weight to 1 and recomputes the scores. */
+    void initialize(boolean[] assignment){
+        System.arraycopy(assignment, 0, Assignment, 0, Assignment.length);
+        Arrays.fill(Weight, 1);
+        Arrays.fill(Break, 0);
+        Arrays.fill(Make, 0);
+        num_unsat = 0;
+        increases = 0;
+        for (int c = 0; c < KB.size(); c++){
+            TrueCount[c] = 0;
+            TrueXor[c] = 0;
+            for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++){
+                if (isTrue(KB.Literals[i])){
+                    TrueCount[c]++;
+                    TrueXor[c] ^= KB.Literals[i];
+                }
+            }
+            UnsatIndex[c] = -1;
+            if (TrueCount[c] == 0){
+                addUnsat(c);
+                for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++)
+                    Make[ClauseStore.variable(KB.Literals[i])]++;
+            }
+            else if (TrueCount[c] == 1)
+                Break[ClauseStore.variable(TrueXor[c])]++;
+        }
+        num_improving = 0;
+        for (int v = 0; v < KB.num_variables; v++){
+            ImprovingIndex[v] = -1;
+            updateImproving(v);
+        }
+        keepBest();
+    }
+
+    private void keepBest(){
+        best_unsat = num_unsat;
+        System.arraycopy(Assignment, 0, Best, 0, Assignment.length);
+    }
+
+    private void addUnsat(int clause){
+        UnsatIndex[clause] = num_unsat;
+        Unsat[num_unsat++] = clause;
+    }
+
+    private void removeUnsat(int clause){
+        int index = UnsatIndex[clause];
+        int last = Unsat[--num_unsat];
+        Unsat[index] = last;
+        UnsatIndex[last] = index;
+        UnsatIndex[clause] = -1;
+    }
+
+    private void updateImproving(int variable){
+        boolean improving = Make[variable] > Break[variable];
+        if (improving && ImprovingIndex[variable] < 0){
+            ImprovingIndex[variable] = num_improving;
+            Improving[num_improving++] = variable;
+        }
+        else if (!improving && ImprovingIndex[variable] >= 0){
+            int last = Improving[--num_improving];
+            Improving[ImprovingIndex[variable]] = last;
+            ImprovingIndex[last] = ImprovingIndex[variable];
+            ImprovingIndex[variable] = -1;
+        }
+    }
+
+    /* Adds delta to the make score of every variable of clause c. */
+    private void addMake(int c, int delta){
+        int variable;
+        for (int l = KB.Start[c]; l < KB.Start[c + 1]; l++){
+            variable = ClauseStore.variable(KB.Literals[l]);
+            Make[variable] += delta;
+            updateImproving(variable);
+        }
+    }
+
+    private void addBreak(int variable, int delta){
+        Break[variable] += delta;
+        updateImproving(variable);
+    }
+
+    void flip(int variable){
+        Assignment[variable] = !Assignment[variable];
+        int TrueLiteral = ClauseStore.literal(variable, !Assignment[variable]);
+        int FalseLiteral = ClauseStore.negate(TrueLiteral);
+        int c;
+
+        for (int i = OccurrenceStart[TrueLiteral]; i < OccurrenceStart[TrueLiteral + 1]; i++){
+            c = Occurrences[i];
+            if (TrueCount[c] == 0){
+                removeUnsat(c);
+                addMake(c, -Weight[c]);
+                Break[variable] += Weight[c];
+            }
+            else if (TrueCount[c] == 1)
+                addBreak(ClauseStore.variable(TrueXor[c]), -Weight[c]);
+            TrueCount[c]++;
+            TrueXor[c] ^= TrueLiteral;
+        }
+        for (int i = OccurrenceStart[FalseLiteral]; i < OccurrenceStart[FalseLiteral + 1]; i++){
+            c = Occurrences[i];
+            TrueCount[c]--;
+            TrueXor[c] ^= FalseLiteral;
+            if (TrueCount[c] == 0){
+                addUnsat(c);
+                addMake(c, Weight[c]);
+                Break[variable] -= Weight[c];
+            }
+            else if (TrueCount[c] == 1)
+                addBreak(ClauseStore.variable(TrueXor[c]), Weight[c]);
+        }
+        updateImproving(variable);
+    }
+
+    /* Improving variable with the largest weighted gain, ties broken at random. */
+    int getBestVariable(){
+        int best = -1, max = 0, ties = 0, gain, variable;
+        for (int i = 0; i < num_improving; i++){
+            variable = Improving[i];
+            gain = Make[variable] - Break[variable];
+            if (gain > max){
+                max = gain;
+                best = variable;
+                ties = 1;
+            }
+            else if (gain == max && randomGenerator.nextInt(++ties) == 0)
+                best = variable;
+        }
+        return best;
+    }
+
+    /* A random zero-gain variable of a random false clause, or -1. */
+    int getFlatVariable(){
+        int Clause = Unsat[getRandomNumber(0, num_unsat - 1)];
+        int flat = -1, ties = 0, variable;
+        for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+            variable = ClauseStore.variable(KB.Literals[i]);
+            if (Make[variable] == Break[variable] && randomGenerator.nextInt(++ties) == 0)
+                flat = variable;
+        }
+        return flat;
+    }
+
+    /* One more unit of weight on every false clause, and the periodic smoothing. */
+    void increaseWeights(){
+        int c;
+        for (int i = 0; i < num_unsat; i++){
+            c = Unsat[i];
+            Weight[c]++;
+            addMake(c, 1);
+        }
+        if (++increases % MAX_INC != 0)
+            return;
+        for (c = 0; c < KB.size(); c++){
+            if (Weight[c] == 1)
+                continue;
+            Weight[c]--;
+            if (TrueCount[c] == 0)
+                addMake(c, -1);
+            else if (TrueCount[c] == 1)
+                addBreak(ClauseStore.variable(TrueXor[c]), -1);
+        }
+    }
+
+    /*
+     * Runs up to max_flips steps from the loaded assignment, a weight
+     * increase counting as a step, so that the budget means the same as for
+     * LocalSearch. flips is left at the number of steps taken before the
+     * model was found.
+     */
+    boolean solve(int max_flips){
+        int variable;
+        for (flips = 0; flips < max_flips; flips++){
+            if (num_unsat == 0)
+                return true;
+            if (Stop != null && (flips & 255) == 0 && Stop.get())
+                return false;
+
+            variable = getBestVariable();
+            if (variable < 0 && randomGenerator.nextDouble() < P_FLAT)
+                variable = getFlatVariable();
+            if (variable >= 0){
+                flip(variable);
+                if (num_unsat < best_unsat)
+                    keepBest();
+            }
+            else
+                increaseWeights();
+        }
+        return num_unsat == 0;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Complete parallel search that splits the KB into cubes and gives each cube
+ * its own CDCLSolver on the common fork/join pool.
+ *
+ * A cube places the first chemicals of Graph.symmetryOrder(), a clique of
+ * separate edges followed by the highest degrees, in fixed containers and
+ * passes the placements as unit clauses. The cubes are grown one chemical at
+ * a time until there are about CUBES_PER_THREAD per pool thread. When the
+ * containers are interchangeable, i.e. the KB holds no symmetry-breaking
+ * clauses, a chemical only takes the containers used so far plus one empty
+ * one, since any other cube is a relabelling of one of those.
+ *
+ * The first cube to reach a model sets Stop and ends the others; the KB is
+ * refuted only once every cube has been refuted. Stop may be replaced by a
+ * flag shared with other engines before decide(); a cube it skips or cuts
+ * short leaves the answer STOPPED.
+ */
+class CubeAndConquer{
+    static final int CUBES_PER_THREAD = 8;
+
+    public int num_chemicals;
+    public int num_containers;
+    public int num_cubes;
+    public boolean Model[];
+    public AtomicBoolean Stop;
+
+    private ClauseStore KB;
+    private int Order[];
+    private boolean interchangeable;
+    private volatile boolean stopped;
+
+    private class Cube extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        int Units[];
+
+        @Override
+        protected void compute(){
+            if (Stop.get()){
+                stopped = true;
+                return;
+            }
+            CDCLSolver Solver = new CDCLSolver(KB, Units);
+            Solver.Stop = Stop;
+            int result = Solver.decide();
+            if (result == CDCLSolver.SATISFIABLE){
+                Stop.set(true);
+                keep(Solver.Model);
+            }
+            else if (result == CDCLSolver.STOPPED)
+                stopped = true;
+        }
+    }
+
+    /* Keeps the first model found, whether or not Stop was already set. */
+    private synchronized void keep(boolean[] Found){
+        if (Model == null)
+            Model = Found;
+    }
+
+    CubeAndConquer(ClauseStore KB, ChemicalGraph Graph, boolean interchangeable){
+        this.KB = KB;
+        this.interchangeable = interchangeable;
+        num_chemicals = Graph.num_chemicals;
+        num_containers = Graph.num_containers;
+        Order = Graph.symmetryOrder();
+        Stop = new AtomicBoolean();
+    }
+
+    /*
+     * Container choices for the first depth chemicals of Order, breadth first.
+     * Each cube is an int array of containers; the last slot holds the number
+     * of containers the cube uses.
+     */
+    private List<int[]> split(){
+        int target = CUBES_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+        List<int[]> Cubes = new ArrayList<>();
+        Cubes.add(new int[1]);
+        List<int[]> Next;
+        int Child[], used, limit;
+        for (int depth = 0; depth < num_chemicals && Cubes.size() < target; depth++){
+            Next = new ArrayList<>();
+            for (int Parent[] : Cubes){
+                used = Parent[depth];
+                limit = interchangeable ? Math.min(used + 1, num_containers) : num_containers;
+                for (int j = 0; j < limit; j++){
+                    Child = new int[depth + 2];
+                    System.arraycopy(Parent, 0, Child, 0, depth);
+                    Child[depth] = j;
+                    Child[depth + 1] = Math.max(used, j + 1);
+                    Next.add(Child);
+                }
+            }
+            Cubes = Next;
+        }
+        return Cubes;
+    }
+
+    /*
+     * CDCLSolver.SATISFIABLE with Model set when some cube is satisfiable,
+     * UNSATISFIABLE when every cube was refuted, and STOPPED otherwise.
+     */
+    int decide(){
+        List<int[]> Containers = split();
+        List<Cube> Cubes = new ArrayList<>();
+        Cube cube;
+        int depth;
+        for (int Prefix[] : Containers){
+            cube = new Cube();
+            depth = Prefix.length - 1;
+            cube.Units = new int[depth];
+            for (int i = 0; i < depth; i++)
+                cube.Units[i] = ClauseStore.literal(Order[i] * num_containers + Prefix[i], false);
+            Cubes.add(cube);
+        }
+        num_cubes = Cubes.size();
+        ForkJoinTask.invokeAll(Cubes);
+        if (Model != null)
+            return CDCLSolver.SATISFIABLE;
+        return stopped ? CDCLSolver.STOPPED : CDCLSolver.UNSATISFIABLE;
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Wall-clock bound on a solve. Every engine already polls an AtomicBoolean
+ * Stop in its main loop; a Deadline sets each flag handed to watch() once
+ * the time is up, from a daemon timer thread, so the hot loops pay nothing
+ * beyond that poll. A flag watched after expiry is set at once.
+ *
+ * An engine returns false when stopped, so expired() is what tells a
+ * timeout from a refutation afterwards. It holds from the moment the flags
+ * are set, so a stopped engine is never taken for a refuted KB; an engine
+ * that finishes right at the deadline may be reported as timed out.
+ */
+class Deadline extends Cancellation{
+    private long end;
+    private Timer Timer;
+
+    /* Expires millis milliseconds from now. */
+    Deadline(long millis){
+        end = System.nanoTime() + millis * 1000000L;
+        Timer = new Timer("Deadline", true);
+        Timer.schedule(new TimerTask(){
+            @Override
+            public void run(){
+                Deadline.this.cancel();
+            }
+        }, Math.max(0, millis));
+    }
+
+    boolean expired(){
+        return cancelled() || System.nanoTime() - end >= 0;
+    }
+
+    @Override
+    synchronized void watch(AtomicBoolean Flag){
+        if (expired() && !cancelled())
+            cancel();
+        super.watch(Flag);
+    }
+
+    @Override
+    synchronized void cancel(){
+        super.cancel();
+        Timer.cancel();
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/*
+ * Runs a complete engine on its own thread while a local search runs on
+ * the calling one, so that a satisfiable KB does not wait for a proof before
+ * the walk starts. Both engines poll Stop, which the caller hands to them.
+ *
+ * A model from the local search ends the race at once. The complete engine
+ * ends it when it refutes the KB or proves it satisfiable with a model; a
+ * satisfiable answer without one, as from resolution, leaves the walk
+ * running. When the walk gives up first the complete engine is waited for,
+ * so result is then its answer: CDCLSolver.SATISFIABLE, UNSATISFIABLE, or
+ * STOPPED when a deadline or the walk's model cut it short.
+ *
+ * An engine that throws, such as resolution running out of memory, gives
+ * no answer: Failure holds what it threw, Stop is set so that the walk ends
+ * too, and result is STOPPED.
+ *
+ * The wait for the engine thread goes through ForkJoinPool.managedBlock, so
+ * a common pool worker running a component does not block the pool: it may
+ * add a spare worker for the other components meanwhile.
+ */
+class EngineRace{
+    public AtomicBoolean Stop;
+    public boolean found;
+    public int result;
+    public Throwable Failure;
+
+    EngineRace(){
+        Stop = new AtomicBoolean();
+    }
+
+    /* Complete gives the engine's answer and HasModel whether a satisfiable answer came with a model. */
+    void run(IntSupplier Complete, BooleanSupplier HasModel, BooleanSupplier Local){
+        Thread Engine = new Thread(() -> {
+            try {
+                result = Complete.getAsInt();
+                if (result != CDCLSolver.SATISFIABLE || HasModel.getAsBoolean())
+                    Stop.set(true);
+            }
+            catch (Throwable e){
+                result = CDCLSolver.STOPPED;
+                Failure = e;
+                Stop.set(true);
+            }
+        });
+        Engine.start();
+        found = Local.getAsBoolean();
+        if (found)
+            Stop.set(true);
+
+        ForkJoinPool.ManagedBlocker Join = new ForkJoinPool.ManagedBlocker(){
+            public boolean block() throws InterruptedException{
+                Engine.join();
+                return true;
+            }
+
+            public boolean isReleasable(){
+                return !Engine.isAlive();
+            }
+        };
+        boolean interrupted = false;
+        while (true){
+            try {
+                ForkJoinPool.managedBlock(Join);
+                break;
+            }
+            catch (InterruptedException e){
+                interrupted = true;
+                Stop.set(true);
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/*
+ * Connected components of a ChemicalGraph over both together and separate
+ * edges. Chemicals in different components share no constraint, so each
+ * component can be encoded and solved on its own.
+ *
+ * Component[c] is the component of chemical c and Members[k] lists the
+ * chemicals of component k in increasing order. Subgraphs[k] is component k
+ * with chemical Members[k][i] renumbered to i.
+ */
+class GraphComponents{
+    public int Component[];
+    public int num_components;
+    public int Members[][];
+    public ChemicalGraph Subgraphs[];
+
+    GraphComponents(ChemicalGraph Graph){
+        UnionFind Sets = new UnionFind(Graph.num_chemicals);
+        for (int e = 0; e < Graph.num_together; e++)
+            Sets.union(Graph.Together[2 * e], Graph.Together[2 * e + 1]);
+        for (int e = 0; e < Graph.num_separate; e++)
+            Sets.union(Graph.Separate[2 * e], Graph.Separate[2 * e + 1]);
+
+        Component = new int[Graph.num_chemicals];
+        int Label[] = new int[Graph.num_chemicals];
+        int Local[] = new int[Graph.num_chemicals];
+        int Size[] = new int[Graph.num_chemicals];
+        Arrays.fill(Label, -1);
+        int root;
+        for (int c = 0; c < Graph.num_chemicals; c++){
+            root = Sets.find(c);
+            if (Label[root] < 0)
+                Label[root] = num_components++;
+            Component[c] = Label[root];
+            Local[c] = Size[Component[c]]++;
+        }
+
+        Members = new int[num_components][];
+        Subgraphs = new ChemicalGraph[num_components];
+        for (int k = 0; k < num_components; k++){
+            Members[k] = new int[Size[k]];
+            Subgraphs[k] = new ChemicalGraph(Size[k], Graph.num_containers);
+        }
+        for (int c = 0; c < Graph.num_chemicals; c++)
+            Members[Component[c]][Local[c]] = c;
+
+        int a, b;
+        for (int e = 0; e < Graph.num_together; e++){
+            a = Graph.Together[2 * e];
+            b = Graph.Together[2 * e + 1];
+            Subgraphs[Component[a]].addTogether(Local[a], Local[b]);
+        }
+        for (int e = 0; e < Graph.num_separate; e++){
+            a = Graph.Separate[2 * e];
+            b = Graph.Separate[2 * e + 1];
+            Subgraphs[Component[a]].addSeparate(Local[a], Local[b]);
+        }
+    }
+}
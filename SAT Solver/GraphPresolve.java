@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/*
+ * Bounds on the separate graph that settle an instance before any clause is
+ * built. After contracting the together groups, a solution is a colouring
+ * of the groups with num_containers colours that keeps every container
+ * within capacity.
+ *
+ * A clique of separate edges needs one container per group, so a clique
+ * larger than num_containers proves the instance unsatisfiable. The clique
+ * is grown greedily from every group whose degree could still beat the best
+ * one, adding its neighbours in decreasing degree order.
+ *
+ * DSATUR colours the group with the most distinct neighbour colours next,
+ * ties broken by degree, with the lowest container that no neighbour uses
+ * and that has room for the group. Finishing without opening more than
+ * num_containers colours proves the instance satisfiable.
+ *
+ * Anything else is left undecided for the SAT engines.
+ */
+class GraphPresolve{
+    static final int UNKNOWN = 0;
+    static final int SATISFIABLE = 1;
+    static final int UNSATISFIABLE = 2;
+
+    public int num_chemicals;
+    public int num_containers;
+    public int capacity;
+    public int status;
+    public int Clique[];
+    public int num_colors;
+    public int containerOf[];
+
+    private int Group[];
+    private int Representative[];
+    private int num_groups;
+    private int Weight[];
+    private boolean conflict;
+
+    private int Neighbors[];
+    private int NeighborStart[];
+    private int Degree[];
+
+    GraphPresolve(ChemicalGraph Graph){
+        num_chemicals = Graph.num_chemicals;
+        num_containers = Graph.num_containers;
+        capacity = Graph.capacity;
+
+        TogetherGroups Groups = new TogetherGroups(Graph);
+        conflict = Groups.Conflict != null;
+        Group = Groups.Group;
+        num_groups = Groups.num_groups;
+        ChemicalGraph Reduced = Groups.reduce(Graph);
+        Weight = new int[num_groups];
+        Representative = new int[num_groups];
+        for (int c = num_chemicals - 1; c >= 0; c--){
+            Weight[Group[c]]++;
+            Representative[Group[c]] = c;
+        }
+
+        /* reduce drops duplicate edges, so Degree counts distinct neighbours. */
+        Degree = new int[num_groups];
+        NeighborStart = new int[num_groups + 1];
+        for (int e = 0; e < 2 * Reduced.num_separate; e++){
+            NeighborStart[Reduced.Separate[e] + 1]++;
+            Degree[Reduced.Separate[e]]++;
+        }
+        for (int g = 0; g < num_groups; g++)
+            NeighborStart[g + 1] += NeighborStart[g];
+        int Next[] = new int[num_groups];
+        System.arraycopy(NeighborStart, 0, Next, 0, num_groups);
+        Neighbors = new int[NeighborStart[num_groups]];
+        int a, b;
+        for (int e = 0; e < Reduced.num_separate; e++){
+            a = Reduced.Separate[2 * e];
+            b = Reduced.Separate[2 * e + 1];
+            Neighbors[Next[a]++] = b;
+            Neighbors[Next[b]++] = a;
+        }
+
+        /* Each neighbour list in decreasing degree order, for the clique search. */
+        Integer List[];
+        for (int g = 0; g < num_groups; g++){
+            List = new Integer[Degree[g]];
+            for (int i = 0; i < Degree[g]; i++)
+                List[i] = Neighbors[NeighborStart[g] + i];
+            Arrays.sort(List, (x, y) -> Degree[y] - Degree[x]);
+            for (int i = 0; i < Degree[g]; i++)
+                Neighbors[NeighborStart[g] + i] = List[i];
+        }
+    }
+
+    /* Runs both bounds and returns the status; UNKNOWN leaves the instance to the solvers. */
+    int solve(){
+        if (conflict || (long)num_containers * capacity < num_chemicals){
+            Clique = new int[0];
+            return status = UNSATISFIABLE;
+        }
+        findClique();
+        if (Clique.length > num_containers)
+            return status = UNSATISFIABLE;
+        if (color())
+            return status = SATISFIABLE;
+        return status = UNKNOWN;
+    }
+
+    /*
+     * Greedy clique from each group in turn. Count[h] is the number of clique
+     * members adjacent to h, so h extends the clique when it equals the size.
+     * Stops early once the clique exceeds num_containers. Clique holds one
+     * chemical of each group.
+     */
+    private void findClique(){
+        int Count[] = new int[num_groups];
+        int Current[] = new int[num_groups];
+        int Best[] = new int[0];
+        int size, h;
+        for (int g = 0; g < num_groups && Best.length <= num_containers; g++){
+            if (Degree[g] < Best.length)
+                continue;
+            Current[0] = g;
+            size = 1;
+            for (int i = NeighborStart[g]; i < NeighborStart[g + 1]; i++)
+                Count[Neighbors[i]]++;
+            for (int i = NeighborStart[g]; i < NeighborStart[g + 1]; i++){
+                h = Neighbors[i];
+                if (Count[h] != size)
+                    continue;
+                Current[size++] = h;
+                for (int k = NeighborStart[h]; k < NeighborStart[h + 1]; k++)
+                    Count[Neighbors[k]]++;
+            }
+            for (int m = 0; m < size; m++){
+                for (int k = NeighborStart[Current[m]]; k < NeighborStart[Current[m] + 1]; k++)
+                    Count[Neighbors[k]] = 0;
+            }
+            if (size > Best.length)
+                Best = Arrays.copyOf(Current, size);
+        }
+        Clique = new int[Best.length];
+        for (int m = 0; m < Best.length; m++)
+            Clique[m] = Representative[Best[m]];
+    }
+
+    /*
+     * DSATUR within num_containers colours and capacity. Used[g*M+j] counts
+     * the neighbours of g in container j and Saturation[g] the containers
+     * with a nonzero count. Returns false as soon as a group has no
+     * container left, which proves nothing.
+     */
+    private boolean color(){
+        int Color[] = new int[num_groups];
+        int Used[] = new int[num_groups * num_containers];
+        int Saturation[] = new int[num_groups];
+        int Load[] = new int[num_containers];
+        Arrays.fill(Color, -1);
+        int g, j, h;
+        num_colors = 0;
+        for (int step = 0; step < num_groups; step++){
+            g = -1;
+            for (h = 0; h < num_groups; h++){
+                if (Color[h] < 0 && (g < 0 || Saturation[h] > Saturation[g]
+                        || (Saturation[h] == Saturation[g] && Degree[h] > Degree[g])))
+                    g = h;
+            }
+            for (j = 0; j < num_containers; j++){
+                if (Used[g * num_containers + j] == 0 && Load[j] + Weight[g] <= capacity)
+                    break;
+            }
+            if (j == num_containers)
+                return false;
+            Color[g] = j;
+            Load[j] += Weight[g];
+            num_colors = Math.max(num_colors, j + 1);
+            for (int i = NeighborStart[g]; i < NeighborStart[g + 1]; i++){
+                h = Neighbors[i];
+                if (Used[h * num_containers + j]++ == 0)
+                    Saturation[h]++;
+            }
+        }
+        containerOf = new int[num_chemicals];
+        for (int c = 0; c < num_chemicals; c++)
+            containerOf[c] = Color[Group[c]];
+        return true;
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * WalkSat over a ClauseStore with incremental bookkeeping.
+ *
+ * TrueCount[c] holds the number of true literals of clause c. Clauses with no
+ * true literal are kept in the Unsat array; UnsatIndex[c] is the position of c
+ * in it (or -1), so a clause is added or swap-removed in O(1). Occurrences
+ * lists every clause containing a literal, so a flip only visits the clauses
+ * of the flipped variable.
+ *
+ * Break[v] counts the clauses in which v holds the only true literal and
+ * Make[v] the unsatisfied clauses that contain v. TrueXor[c] is the XOR of the
+ * true literals of c, which names the critical literal once TrueCount[c] is 1.
+ * Both scores are updated by flip(), so the greedy step is a lookup.
+ *
+ * Stop, when set, is polled every 256 flips so that another thread can end
+ * the walk early.
+ *
+ * With adaptive set, the noise starts at p and follows Hoos' adaptive
+ * WalkSAT: after num_clauses * THETA flips without fewer unsatisfied clauses
+ * it moves PHI of the way towards 1, and each improvement takes it down by
+ * PHI / 2 of itself. noise is left at its final value.
+ *
+ * Which literal of a false clause to flip is left to Strategy, WalkSat's
+ * own rule unless set otherwise; LastFlip[v] is the flip at which v last
+ * changed, for the strategies that look at age.
+ *
+ * Best holds the assignment with the fewest unsatisfied clauses seen since
+ * initialize(), best_unsat of them, so a walk cut short by Stop still
+ * leaves its best point rather than wherever it happened to be. It is only
+ * copied when best_unsat drops, which happens rarely once the walk has
+ * left its initial descent.
+ */
+class LocalSearch{
+    static final double THETA = 1.0 / 6;
+    static final double PHI = 0.2;
+
+    public ClauseStore KB;
+    public boolean Assignment[];
+    public int TrueCount[];
+    public int TrueXor[];
+    public int Break[];
+    public int Make[];
+    public int Unsat[];
+    public int UnsatIndex[];
+    public int num_unsat;
+    public int Occurrences[];
+    public int OccurrenceStart[];
+    public int flips;
+    public Random randomGenerator;
+    public AtomicBoolean Stop;
+    public boolean adaptive;
+    public double noise;
+    public PickStrategy Strategy;
+    public int LastFlip[];
+    public boolean Best[];
+    public int best_unsat;
+
+    LocalSearch(ClauseStore KB, Random randomGenerator){
+        this.KB = KB;
+        this.randomGenerator = randomGenerator;
+        Assignment = new boolean[KB.num_variables];
+        TrueCount = new int[KB.size()];
+        TrueXor = new int[KB.size()];
+        Break = new int[KB.num_variables];
+        Make = new int[KB.num_variables];
+        Unsat = new int[KB.size()];
+        UnsatIndex = new int[KB.size()];
+        LastFlip = new int[KB.num_variables];
+        Best = new boolean[KB.num_variables];
+        Strategy = new PickStrategy.WalkSatPick();
+
+        int num_literals = 2 * KB.num_variables;
+        OccurrenceStart = new int[num_literals + 1];
+        for (int i = 0; i < KB.Start[KB.size()]; i++)
+            OccurrenceStart[KB.Literals[i] + 1]++;
+        for (int l = 0; l < num_literals; l++)
+            OccurrenceStart[l + 1] += OccurrenceStart[l];
+
+        int Next[] = new int[num_literals];
+        System.arraycopy(OccurrenceStart, 0, Next, 0, num_literals);
+        Occurrences = new int[KB.Start[KB.size()]];
+        for (int c = 0; c < KB.size(); c++){
+            for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++)
+                Occurrences[Next[KB.Literals[i]]++] = c;
+        }
+    }
+
+    int getRandomNumber(int start, int end){
+        return start + randomGenerator.nextInt(end - start + 1);
+    }
+
+    boolean doRandom(double p){
+        return randomGenerator.nextDouble() <= p;
+    }
+
+    boolean isTrue(int literal){
+        return Assignment[ClauseStore.variable(literal)] != ClauseStore.isNegated(literal);
+    }
+
+    /* Loads a complete assignment and recomputes every clause count and score. */
+    void initialize(boolean[] assignment){
+        System.arraycopy(assignment, 0, Assignment, 0, Assignment.length);
+        Arrays.fill(Break, 0);
+        Arrays.fill(Make, 0);
+        Arrays.fill(LastFlip, Integer.MIN_VALUE / 2);
+        num_unsat = 0;
+        for (int c = 0; c < KB.size(); c++){
+            TrueCount[c] = 0;
+            TrueXor[c] = 0;
+            for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++){
+                if (isTrue(KB.Literals[i])){
+                    TrueCount[c]++;
+                    TrueXor[c] ^= KB.Literals[i];
+                }
+            }
+            UnsatIndex[c] = -1;
+            if (TrueCount[c] == 0){
+                addUnsat(c);
+                for (int i = KB.Start[c]; i < KB.Start[c + 1]; i++)
+                    Make[ClauseStore.variable(KB.Literals[i])]++;
+            }
+            else if (TrueCount[c] == 1)
+                Break[ClauseStore.variable(TrueXor[c])]++;
+        }
+        keepBest();
+    }
+
+    private void keepBest(){
+        best_unsat = num_unsat;
+        System.arraycopy(Assignment, 0, Best, 0, Assignment.length);
+    }
+
+    private void addUnsat(int clause){
+        UnsatIndex[clause] = num_unsat;
+        Unsat[num_unsat++] = clause;
+    }
+
+    private void removeUnsat(int clause){
+        int index = UnsatIndex[clause];
+        int last = Unsat[--num_unsat];
+        Unsat[index] = last;
+        UnsatIndex[last] = index;
+        UnsatIndex[clause] = -1;
+    }
+
+    void flip(int variable){
+        Assignment[variable] = !Assignment[variable];
+        LastFlip[variable] = flips;
+        int TrueLiteral = ClauseStore.literal(variable, !Assignment[variable]);
+        int FalseLiteral = ClauseStore.negate(TrueLiteral);
+        int c;
+
+        for (int i = OccurrenceStart[TrueLiteral]; i < OccurrenceStart[TrueLiteral + 1]; i++){
+            c = Occurrences[i];
+            if (TrueCount[c] == 0){
+                removeUnsat(c);
+                for (int l = KB.Start[c]; l < KB.Start[c + 1]; l++)
+                    Make[ClauseStore.variable(KB.Literals[l])]--;
+                Break[variable]++;
+            }
+            else if (TrueCount[c] == 1)
+                Break[ClauseStore.variable(TrueXor[c])]--;
+            TrueCount[c]++;
+            TrueXor[c] ^= TrueLiteral;
+        }
+        for (int i = OccurrenceStart[FalseLiteral]; i < OccurrenceStart[FalseLiteral + 1]; i++){
+            c = Occurrences[i];
+            TrueCount[c]--;
+            TrueXor[c] ^= FalseLiteral;
+            if (TrueCount[c] == 0){
+                addUnsat(c);
+                for (int l = KB.Start[c]; l < KB.Start[c + 1]; l++)
+                    Make[ClauseStore.variable(KB.Literals[l])]++;
+                Break[variable]--;
+            }
+            else if (TrueCount[c] == 1)
+                Break[ClauseStore.variable(TrueXor[c])]++;
+        }
+    }
+
+    int getRandomFalseClause(){
+        return Unsat[getRandomNumber(0, num_unsat - 1)];
+    }
+
+    int getRandomLiteral(int Clause){
+        return KB.Literals[KB.Start[Clause] + getRandomNumber(0, KB.clauseLength(Clause) - 1)];
+    }
+
+    /*
+     * Literal of Clause whose flip breaks the fewest satisfied clauses. Ties go
+     * to the larger make score, then to a random choice among the rest.
+     */
+    int getMinBreakLiteral(int Clause){
+        int MinLiteral = -1;
+        int min = Integer.MAX_VALUE, max = -1, ties = 0;
+        int literal, variable;
+
+        for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+            literal = KB.Literals[i];
+            variable = ClauseStore.variable(literal);
+            if (Break[variable] < min || (Break[variable] == min && Make[variable] > max)){
+                min = Break[variable];
+                max = Make[variable];
+                MinLiteral = literal;
+                ties = 1;
+            }
+            else if (Break[variable] == min && Make[variable] == max && randomGenerator.nextInt(++ties) == 0)
+                MinLiteral = literal;
+        }
+        return MinLiteral;
+    }
+
+    /*
+     * Runs up to max_flips flips from the loaded assignment. flips is left at
+     * the number of flips made before the model was found. Strategy picks
+     * the literal of a random false clause; under WalkSat's rule a literal
+     * that breaks nothing is always taken, otherwise the walk is random with
+     * probability noise and min-break greedy the rest of the time.
+     */
+    boolean solve(double p, int max_flips){
+        int RandomClause;
+        int last_unsat = num_unsat, last_improvement = 0;
+        noise = p;
+
+        for (flips = 0; flips < max_flips; flips++){
+            if (num_unsat == 0)
+                return true;
+            if (Stop != null && (flips & 255) == 0 && Stop.get())
+                return false;
+            if (adaptive){
+                if (num_unsat < last_unsat){
+                    noise -= noise * PHI / 2;
+                    last_unsat = num_unsat;
+                    last_improvement = flips;
+                }
+                else if (flips - last_improvement > KB.size() * THETA){
+                    noise += (1 - noise) * PHI;
+                    last_unsat = num_unsat;
+                    last_improvement = flips;
+                }
+            }
+
+            RandomClause = getRandomFalseClause();
+            flip(ClauseStore.variable(Strategy.pick(this, RandomClause)));
+            if (num_unsat < best_unsat)
+                keepBest();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The pick step of LocalSearch: given a false clause, the literal to flip.
+ * Strategies read the scores LocalSearch keeps (Break, Make, LastFlip and
+ * the current noise) and hold no state of their own beyond scratch space,
+ * so every LocalSearch gets its own instance from forName.
+ */
+interface PickStrategy{
+    String WALKSAT = "walksat";
+    String NOVELTY_PLUS = "novelty+";
+    String PROBSAT_POLY = "probsat-poly";
+    String PROBSAT_EXP = "probsat-exp";
+    String TABU = "tabu";
+    String NAMES[] = {WALKSAT, NOVELTY_PLUS, PROBSAT_POLY, PROBSAT_EXP, TABU};
+
+    int pick(LocalSearch Search, int Clause);
+
+    static PickStrategy forName(String name){
+        if (name.equals(NOVELTY_PLUS))
+            return new NoveltyPlusPick();
+        if (name.equals(PROBSAT_POLY))
+            return new ProbSatPick(false);
+        if (name.equals(PROBSAT_EXP))
+            return new ProbSatPick(true);
+        if (name.equals(TABU))
+            return new TabuPick();
+        return new WalkSatPick();
+    }
+
+    /*
+     * WalkSat/SKC: a literal that breaks nothing is always taken; otherwise a
+     * random literal with probability noise and the min-break one otherwise.
+     */
+    static final class WalkSatPick implements PickStrategy{
+        public int pick(LocalSearch Search, int Clause){
+            int literal = Search.getMinBreakLiteral(Clause);
+            if (Search.Break[ClauseStore.variable(literal)] > 0 && Search.doRandom(Search.noise))
+                literal = Search.getRandomLiteral(Clause);
+            return literal;
+        }
+    }
+
+    /*
+     * Novelty+ (Hoos): with probability WALK_PROBABILITY a random literal.
+     * Otherwise the literal with the best make - break score, ties going to
+     * the one flipped longest ago; when that literal is the most recently
+     * flipped of the clause, the second best is taken with probability noise.
+     */
+    static final class NoveltyPlusPick implements PickStrategy{
+        static final double WALK_PROBABILITY = 0.01;
+
+        public int pick(LocalSearch Search, int Clause){
+            if (Search.doRandom(WALK_PROBABILITY))
+                return Search.getRandomLiteral(Clause);
+
+            ClauseStore KB = Search.KB;
+            int best = -1, second = -1, youngest = -1;
+            int literal, variable, score, best_score = Integer.MIN_VALUE, second_score = Integer.MIN_VALUE;
+            for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+                literal = KB.Literals[i];
+                variable = ClauseStore.variable(literal);
+                score = Search.Make[variable] - Search.Break[variable];
+                if (youngest < 0 || Search.LastFlip[variable] > Search.LastFlip[ClauseStore.variable(youngest)])
+                    youngest = literal;
+                if (best < 0 || score > best_score || (score == best_score && older(Search, literal, best))){
+                    second = best;
+                    second_score = best_score;
+                    best = literal;
+                    best_score = score;
+                }
+                else if (second < 0 || score > second_score || (score == second_score && older(Search, literal, second))){
+                    second = literal;
+                    second_score = score;
+                }
+            }
+            if (best == youngest && second >= 0 && Search.doRandom(Search.noise))
+                return second;
+            return best;
+        }
+
+        private static boolean older(LocalSearch Search, int a, int b){
+            return Search.LastFlip[ClauseStore.variable(a)] < Search.LastFlip[ClauseStore.variable(b)];
+        }
+    }
+
+    /*
+     * probSAT (Balint and Schoening): each literal of the clause is drawn with
+     * probability proportional to f(break), either (EPS + break)^-CB_POLY or
+     * CB_EXP^-break. There is no greedy step and no noise parameter.
+     */
+    static final class ProbSatPick implements PickStrategy{
+        static final double CB_POLY = 2.38;
+        static final double EPS = 1.0;
+        static final double CB_EXP = 2.5;
+
+        private boolean exponential;
+        private double Probability[];
+
+        ProbSatPick(boolean exponential){
+            this.exponential = exponential;
+            Probability = new double[16];
+        }
+
+        public int pick(LocalSearch Search, int Clause){
+            ClauseStore KB = Search.KB;
+            int length = KB.clauseLength(Clause);
+            if (length > Probability.length)
+                Probability = new double[Math.max(length, 2 * Probability.length)];
+            double sum = 0;
+            int breaks;
+            for (int i = 0; i < length; i++){
+                breaks = Search.Break[ClauseStore.variable(KB.Literals[KB.Start[Clause] + i])];
+                Probability[i] = exponential ? Math.pow(CB_EXP, -breaks) : Math.pow(EPS + breaks, -CB_POLY);
+                sum += Probability[i];
+            }
+            double r = Search.randomGenerator.nextDouble() * sum;
+            for (int i = 0; i < length - 1; i++){
+                r -= Probability[i];
+                if (r < 0)
+                    return KB.Literals[KB.Start[Clause] + i];
+            }
+            return KB.Literals[KB.Start[Clause + 1] - 1];
+        }
+    }
+
+    /*
+     * WalkSat restricted to variables not flipped in the last TENURE flips: a
+     * freebie among them is always taken, otherwise a random one with
+     * probability noise and the min-break one otherwise. When every variable of
+     * the clause is tabu the one flipped longest ago is taken.
+     */
+    static final class TabuPick implements PickStrategy{
+        static final int TENURE = 10;
+
+        public int pick(LocalSearch Search, int Clause){
+            ClauseStore KB = Search.KB;
+            int best = -1, oldest = -1, min = Integer.MAX_VALUE, ties = 0, allowed = 0;
+            int literal, variable;
+            for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+                literal = KB.Literals[i];
+                variable = ClauseStore.variable(literal);
+                if (oldest < 0 || Search.LastFlip[variable] < Search.LastFlip[ClauseStore.variable(oldest)])
+                    oldest = literal;
+                if (Search.flips - Search.LastFlip[variable] <= TENURE)
+                    continue;
+                allowed++;
+                if (Search.Break[variable] < min){
+                    min = Search.Break[variable];
+                    best = literal;
+                    ties = 1;
+                }
+                else if (Search.Break[variable] == min && Search.randomGenerator.nextInt(++ties) == 0)
+                    best = literal;
+            }
+            if (best < 0)
+                return oldest;
+            if (min == 0 || !Search.doRandom(Search.noise))
+                return best;
+
+            int choice = Search.getRandomNumber(1, allowed);
+            for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+                literal = KB.Literals[i];
+                if (Search.flips - Search.LastFlip[ClauseStore.variable(literal)] > TENURE && --choice == 0)
+                    return literal;
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,588 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Simplifies a ClauseStore between encoding and solving. The passes run in
+ * the order of PASSES and each can be left out:
+ *
+ *   units      top-level unit propagation; fixed variables leave the KB
+ *   subsume    drops subsumed clauses and strengthens clauses by
+ *              self-subsuming resolution
+ *   equiv      replaces every strongly connected component of the binary
+ *              implication graph (see TwoSatSolver) by one literal
+ *   probe      failed-literal probing: a literal whose propagation ends in
+ *              a conflict is false
+ *   eliminate  bounded variable elimination: a variable is resolved away
+ *              when that adds no clauses and no resolvent is longer than
+ *              MAX_RESOLVENT
+ *
+ * Units found by the later passes are propagated when units is on and kept
+ * as unit clauses otherwise. Clauses[c] holds the sorted literals of clause
+ * c, or null once it is gone, and Occurs[l] lists the clauses of literal l.
+ *
+ * Every step that changes the models pushes the clauses it gives up onto
+ * Extension, witness literal first. extend() walks them backwards and makes
+ * the witness true wherever such a clause is false, which turns a model of
+ * the reduced KB into a model of the original one.
+ *
+ * Stop, when set, is polled per variable by probe and eliminate; a pass cut
+ * short still leaves an equisatisfiable KB.
+ */
+class Preprocessor{
+    static final String UNITS = "units";
+    static final String SUBSUME = "subsume";
+    static final String EQUIVALENCE = "equiv";
+    static final String PROBE = "probe";
+    static final String ELIMINATE = "eliminate";
+    static final String PASSES[] = {UNITS, SUBSUME, EQUIVALENCE, PROBE, ELIMINATE};
+    static final int MAX_RESOLVENT = 16;
+    static final int MAX_OCCURRENCES = 16;
+    static final long PROBE_BUDGET = 1L << 24;
+
+    private static final int SUBSUMED = -1;
+    private static final int NONE = -2;
+
+    public int num_variables;
+    public boolean unsatisfiable;
+    public List<String> Report;
+    public AtomicBoolean Stop;
+
+    private List<String> Passes;
+    private boolean propagating;
+    private int Clauses[][];
+    private int num_clauses;
+    private int num_live;
+    private int Occurs[][];
+    private int OccurCount[];
+    private int Value[];
+    private boolean Removed[];
+    private int Units[];
+    private int num_units;
+    private int head;
+    private int Extension[];
+    private int extension_size;
+    private int Probe[];
+    private int Trail[];
+    private long probe_visits;
+
+    /* passes is a subset of PASSES, see parse(). */
+    Preprocessor(ClauseStore KB, String[] passes){
+        num_variables = KB.num_variables;
+        Passes = Arrays.asList(passes);
+        Report = new ArrayList<>();
+        Clauses = new int[Math.max(16, KB.size())][];
+        Occurs = new int[2 * num_variables][];
+        OccurCount = new int[2 * num_variables];
+        for (int l = 0; l < 2 * num_variables; l++)
+            Occurs[l] = new int[4];
+        Value = new int[num_variables];
+        Removed = new boolean[num_variables];
+        Units = new int[num_variables];
+        Extension = new int[64];
+        Probe = new int[num_variables];
+        Trail = new int[num_variables];
+        for (int c = 0; c < KB.size(); c++)
+            addClause(Arrays.copyOfRange(KB.Literals, KB.Start[c], KB.Start[c + 1]));
+    }
+
+    /* Passes named by an option value: none, all, or a comma-separated list of PASSES. */
+    static String[] parse(String value){
+        if (value.equals("none"))
+            return new String[0];
+        if (value.equals("all"))
+            return PASSES;
+        String passes[] = value.split(",");
+        for (String pass : passes){
+            if (!Arrays.asList(PASSES).contains(pass))
+                throw new IllegalArgumentException("Incorrect value for -preprocess: " + value);
+        }
+        return passes;
+    }
+
+    private int value(int literal){
+        int value = Value[ClauseStore.variable(literal)];
+        return ClauseStore.isNegated(literal) ? -value : value;
+    }
+
+    /*
+     * Stores a clause, first dropping false and repeated literals. A true
+     * literal or a complementary pair leaves nothing to store. Once the
+     * passes run, a unit is queued for propagation when units is on.
+     */
+    private void addClause(int[] Lits){
+        Arrays.sort(Lits);
+        int length = 0;
+        for (int i = 0; i < Lits.length; i++){
+            if (value(Lits[i]) > 0)
+                return;
+            if (value(Lits[i]) < 0 || (length > 0 && Lits[length - 1] == Lits[i]))
+                continue;
+            if (length > 0 && Lits[length - 1] == ClauseStore.negate(Lits[i]))
+                return;
+            Lits[length++] = Lits[i];
+        }
+        if (length == 0){
+            unsatisfiable = true;
+            return;
+        }
+        if (num_clauses == Clauses.length)
+            Clauses = Arrays.copyOf(Clauses, 2 * num_clauses);
+        int c = num_clauses++;
+        Clauses[c] = Arrays.copyOf(Lits, length);
+        num_live++;
+        for (int literal : Clauses[c]){
+            if (OccurCount[literal] == Occurs[literal].length)
+                Occurs[literal] = Arrays.copyOf(Occurs[literal], 2 * OccurCount[literal]);
+            Occurs[literal][OccurCount[literal]++] = c;
+        }
+        if (length == 1 && propagating)
+            assign(Clauses[c][0]);
+    }
+
+    private void removeOccurrence(int literal, int c){
+        for (int i = 0; i < OccurCount[literal]; i++){
+            if (Occurs[literal][i] == c){
+                Occurs[literal][i] = Occurs[literal][--OccurCount[literal]];
+                return;
+            }
+        }
+    }
+
+    private void removeClause(int c){
+        for (int literal : Clauses[c])
+            removeOccurrence(literal, c);
+        Clauses[c] = null;
+        num_live--;
+    }
+
+    /* Removes literal from clause c; a clause left with one literal is a unit. */
+    private void strengthen(int c, int literal){
+        int Lits[] = new int[Clauses[c].length - 1];
+        int length = 0;
+        for (int l : Clauses[c]){
+            if (l != literal)
+                Lits[length++] = l;
+        }
+        removeOccurrence(literal, c);
+        Clauses[c] = Lits;
+        if (length == 0)
+            unsatisfiable = true;
+        else if (length == 1 && propagating)
+            assign(Lits[0]);
+    }
+
+    /* Pushes the clause of witness and Lits onto Extension, witness first and its length last. */
+    private void pushExtension(int witness, int... Lits){
+        if (extension_size + Lits.length + 2 > Extension.length)
+            Extension = Arrays.copyOf(Extension, 2 * (extension_size + Lits.length + 2));
+        int start = extension_size;
+        Extension[extension_size++] = witness;
+        for (int literal : Lits){
+            if (literal != witness)
+                Extension[extension_size++] = literal;
+        }
+        Extension[extension_size] = extension_size - start;
+        extension_size++;
+    }
+
+    /* Fixes literal true and queues it for propagation. */
+    private void assign(int literal){
+        if (value(literal) > 0)
+            return;
+        if (value(literal) < 0){
+            unsatisfiable = true;
+            return;
+        }
+        Value[ClauseStore.variable(literal)] = ClauseStore.isNegated(literal) ? -1 : 1;
+        pushExtension(literal);
+        Units[num_units++] = literal;
+    }
+
+    /* Removes the clauses of every queued unit and its negation from the others. */
+    private void propagate(){
+        int literal, FalseLiteral;
+        while (head < num_units && !unsatisfiable){
+            literal = Units[head++];
+            FalseLiteral = ClauseStore.negate(literal);
+            while (OccurCount[literal] > 0)
+                removeClause(Occurs[literal][0]);
+            while (OccurCount[FalseLiteral] > 0 && !unsatisfiable)
+                strengthen(Occurs[FalseLiteral][0], FalseLiteral);
+        }
+    }
+
+    /* A unit found by a pass, propagated when units is on. */
+    private void addUnit(int literal){
+        addClause(new int[]{literal});
+        propagate();
+    }
+
+    /*
+     * SUBSUMED when C is a subset of D; the literal of D whose negation is
+     * in C when C is a subset of D but for that one flipped literal; NONE
+     * otherwise. Both are sorted and free of complementary pairs.
+     */
+    private static int subsumes(int[] C, int[] D){
+        int flipped = SUBSUMED, j = 0, variable;
+        for (int i = 0; i < C.length; i++){
+            variable = ClauseStore.variable(C[i]);
+            while (j < D.length && ClauseStore.variable(D[j]) < variable)
+                j++;
+            if (j == D.length || ClauseStore.variable(D[j]) != variable)
+                return NONE;
+            if (D[j] != C[i]){
+                if (flipped != SUBSUMED)
+                    return NONE;
+                flipped = D[j];
+            }
+            j++;
+        }
+        return flipped;
+    }
+
+    private void units(){
+        int before = num_live;
+        for (int c = 0; c < num_clauses; c++){
+            if (Clauses[c] != null && Clauses[c].length == 1)
+                assign(Clauses[c][0]);
+        }
+        propagate();
+        Report.add("Unit propagation fixed " + num_units + " variables and removed " + (before - num_live) + " clauses");
+    }
+
+    /*
+     * Backward subsumption from every clause, shortest first. D can only be
+     * subsumed or strengthened by C when it holds a literal of C's least
+     * frequent variable, so only those clauses are compared. A strengthened
+     * clause is tried again as a subsumer.
+     */
+    private void subsume(){
+        int before = num_live, strengthened = 0;
+        int Stack[] = new int[num_clauses];
+        boolean Queued[] = new boolean[num_clauses];
+        int stack_size = 0;
+        long Order[] = new long[num_clauses];
+        for (int c = 0; c < num_clauses; c++)
+            Order[c] = ((long)length(c) << 32) | c;
+        Arrays.sort(Order);
+        for (int i = num_clauses - 1; i >= 0; i--){
+            if (Clauses[(int)Order[i]] != null){
+                Stack[stack_size++] = (int)Order[i];
+                Queued[(int)Order[i]] = true;
+            }
+        }
+
+        int c, C[], D[], pivot, result, Candidates[], count;
+        while (stack_size > 0 && !unsatisfiable){
+            c = Stack[--stack_size];
+            Queued[c] = false;
+            C = Clauses[c];
+            if (C == null)
+                continue;
+            pivot = C[0];
+            for (int literal : C){
+                if (occurrences(literal) < occurrences(pivot))
+                    pivot = literal;
+            }
+            pivot &= ~1;
+            count = OccurCount[pivot] + OccurCount[pivot | 1];
+            Candidates = new int[count];
+            System.arraycopy(Occurs[pivot], 0, Candidates, 0, OccurCount[pivot]);
+            System.arraycopy(Occurs[pivot | 1], 0, Candidates, OccurCount[pivot], OccurCount[pivot | 1]);
+            for (int d : Candidates){
+                D = Clauses[d];
+                if (d == c || D == null || D.length < C.length)
+                    continue;
+                result = subsumes(C, D);
+                if (result == SUBSUMED)
+                    removeClause(d);
+                else if (result != NONE){
+                    strengthen(d, result);
+                    strengthened++;
+                    propagate();
+                    if (Clauses[d] != null && !Queued[d]){
+                        Stack[stack_size++] = d;
+                        Queued[d] = true;
+                    }
+                }
+                if (Clauses[c] != C || unsatisfiable)
+                    break;
+            }
+            if (Clauses[c] != null && Clauses[c] != C && !Queued[c]){
+                Stack[stack_size++] = c;
+                Queued[c] = true;
+            }
+        }
+        Report.add("Subsumption removed " + (before - num_live) + " clauses and strengthened " + strengthened);
+    }
+
+    private int length(int c){
+        return Clauses[c] == null ? 0 : Clauses[c].length;
+    }
+
+    private int occurrences(int literal){
+        return OccurCount[literal] + OccurCount[ClauseStore.negate(literal)];
+    }
+
+    /*
+     * Literals in one component of the binary implication graph are
+     * equivalent. The first literal of each component, in literal order,
+     * stands for the whole component and its negation for the dual one, so
+     * a variable is replaced by a literal of a smaller variable. A variable
+     * with both literals in one component refutes the KB.
+     */
+    private void substitute(){
+        int before = num_live, substituted = 0;
+        ClauseStore Binary = new ClauseStore(num_variables);
+        for (int c = 0; c < num_clauses; c++){
+            if (Clauses[c] != null && Clauses[c].length == 2)
+                Binary.addClause(Clauses[c][0], Clauses[c][1]);
+        }
+        TwoSatSolver Solver = new TwoSatSolver(Binary);
+        if (!Solver.solve()){
+            unsatisfiable = true;
+            Report.add("Equivalent literals: a variable is equivalent to its negation");
+            return;
+        }
+
+        int num_literals = 2 * num_variables;
+        int Representative[] = new int[num_literals];
+        Arrays.fill(Representative, -1);
+        for (int l = 0; l < num_literals; l++){
+            if (Representative[Solver.Component[l]] < 0){
+                Representative[Solver.Component[l]] = l;
+                Representative[Solver.Component[ClauseStore.negate(l)]] = ClauseStore.negate(l);
+            }
+        }
+
+        int positive, negative, replacement, c, Lits[];
+        for (int v = 0; v < num_variables && !unsatisfiable; v++){
+            positive = ClauseStore.literal(v, false);
+            replacement = Representative[Solver.Component[positive]];
+            if (Value[v] != 0 || Removed[v] || ClauseStore.variable(replacement) == v)
+                continue;
+            negative = ClauseStore.negate(positive);
+            Removed[v] = true;
+            substituted++;
+            pushExtension(positive, positive, ClauseStore.negate(replacement));
+            pushExtension(negative, negative, replacement);
+            for (int literal : new int[]{positive, negative}){
+                while (OccurCount[literal] > 0 && !unsatisfiable){
+                    c = Occurs[literal][0];
+                    Lits = Clauses[c].clone();
+                    removeClause(c);
+                    for (int i = 0; i < Lits.length; i++){
+                        if (Lits[i] == literal)
+                            Lits[i] = literal == positive ? replacement : ClauseStore.negate(replacement);
+                    }
+                    addClause(Lits);
+                }
+            }
+            propagate();
+        }
+        Report.add("Equivalent literals replaced " + substituted + " variables and removed " + (before - num_live) + " clauses");
+    }
+
+    private int probeValue(int literal){
+        int value = value(literal);
+        if (value != 0)
+            return value;
+        value = Probe[ClauseStore.variable(literal)];
+        return ClauseStore.isNegated(literal) ? -value : value;
+    }
+
+    /* Propagates literal over the KB on a scratch assignment; false on a conflict. */
+    private boolean probe(int literal){
+        int trail_size = 0, FalseLiteral, unassigned, free, value;
+        boolean conflict = false, satisfied;
+        Probe[ClauseStore.variable(literal)] = ClauseStore.isNegated(literal) ? -1 : 1;
+        Trail[trail_size++] = literal;
+        for (int t = 0; t < trail_size && !conflict; t++){
+            FalseLiteral = ClauseStore.negate(Trail[t]);
+            for (int i = 0; i < OccurCount[FalseLiteral] && !conflict; i++){
+                unassigned = -1;
+                free = 0;
+                satisfied = false;
+                for (int l : Clauses[Occurs[FalseLiteral][i]]){
+                    value = probeValue(l);
+                    if (value > 0){
+                        satisfied = true;
+                        break;
+                    }
+                    if (value == 0){
+                        free++;
+                        unassigned = l;
+                    }
+                }
+                probe_visits++;
+                if (satisfied || free > 1)
+                    continue;
+                if (free == 0)
+                    conflict = true;
+                else {
+                    Probe[ClauseStore.variable(unassigned)] = ClauseStore.isNegated(unassigned) ? -1 : 1;
+                    Trail[trail_size++] = unassigned;
+                }
+            }
+        }
+        for (int t = 0; t < trail_size; t++)
+            Probe[ClauseStore.variable(Trail[t])] = 0;
+        return !conflict;
+    }
+
+    /* Probes both literals of every variable until PROBE_BUDGET clause visits are spent. */
+    private void probe(){
+        int before = num_live, failed = 0, literal;
+        for (int v = 0; v < num_variables && !unsatisfiable && probe_visits < PROBE_BUDGET; v++){
+            if (Stop != null && Stop.get())
+                break;
+            if (Value[v] != 0 || Removed[v] || occurrences(ClauseStore.literal(v, false)) == 0)
+                continue;
+            for (int sign = 0; sign < 2; sign++){
+                literal = ClauseStore.literal(v, sign == 1);
+                if (!probe(literal)){
+                    addUnit(ClauseStore.negate(literal));
+                    failed++;
+                    break;
+                }
+            }
+        }
+        Report.add("Failed-literal probing found " + failed + " failed literals and removed " + (before - num_live) + " clauses");
+    }
+
+    /* Resolvent of C and D on variable, or null when it is a tautology. */
+    private static int[] resolve(int[] C, int[] D, int variable){
+        int Lits[] = new int[C.length + D.length - 2];
+        int length = 0, i = 0, j = 0, next;
+        while (i < C.length || j < D.length){
+            if (j == D.length || (i < C.length && C[i] <= D[j]))
+                next = C[i++];
+            else
+                next = D[j++];
+            if (ClauseStore.variable(next) == variable)
+                continue;
+            if (length > 0 && Lits[length - 1] == next)
+                continue;
+            if (length > 0 && Lits[length - 1] == ClauseStore.negate(next))
+                return null;
+            Lits[length++] = next;
+        }
+        return Arrays.copyOf(Lits, length);
+    }
+
+    /*
+     * Resolves away each variable, fewest occurrences first, when its
+     * non-tautological resolvents are no more than the clauses they replace
+     * and none is longer than MAX_RESOLVENT. Variables with more than
+     * MAX_OCCURRENCES clauses on both sides are skipped. The clauses of the
+     * less frequent literal go onto Extension, followed by the other literal
+     * as a default that they override.
+     */
+    private void eliminate(){
+        int before = num_live, eliminated = 0;
+        long Order[] = new long[num_variables];
+        for (int v = 0; v < num_variables; v++)
+            Order[v] = ((long)occurrences(ClauseStore.literal(v, false)) << 32) | v;
+        Arrays.sort(Order);
+
+        int v, positive, negative, keep, other, R[];
+        List<int[]> Resolvents = new ArrayList<>();
+        boolean bounded;
+        for (long entry : Order){
+            if (unsatisfiable || (Stop != null && Stop.get()))
+                break;
+            v = (int)entry;
+            positive = ClauseStore.literal(v, false);
+            negative = ClauseStore.negate(positive);
+            if (Value[v] != 0 || Removed[v] || occurrences(positive) == 0)
+                continue;
+            if (OccurCount[positive] > MAX_OCCURRENCES && OccurCount[negative] > MAX_OCCURRENCES)
+                continue;
+
+            Resolvents.clear();
+            bounded = true;
+            for (int i = 0; i < OccurCount[positive] && bounded; i++){
+                for (int j = 0; j < OccurCount[negative] && bounded; j++){
+                    R = resolve(Clauses[Occurs[positive][i]], Clauses[Occurs[negative][j]], v);
+                    if (R == null)
+                        continue;
+                    Resolvents.add(R);
+                    bounded = R.length <= MAX_RESOLVENT && Resolvents.size() <= occurrences(positive);
+                }
+            }
+            if (!bounded)
+                continue;
+
+            Removed[v] = true;
+            eliminated++;
+            keep = OccurCount[positive] > OccurCount[negative] ? negative : positive;
+            other = ClauseStore.negate(keep);
+            for (int i = 0; i < OccurCount[keep]; i++)
+                pushExtension(keep, Clauses[Occurs[keep][i]]);
+            pushExtension(other);
+            while (OccurCount[positive] > 0)
+                removeClause(Occurs[positive][0]);
+            while (OccurCount[negative] > 0)
+                removeClause(Occurs[negative][0]);
+            for (int[] Resolvent : Resolvents)
+                addClause(Resolvent);
+            propagate();
+        }
+        Report.add("Variable elimination removed " + eliminated + " variables and " + (before - num_live) + " clauses");
+    }
+
+    /* Runs the chosen passes; returns false once one of them refutes the KB. */
+    boolean run(){
+        int before = num_live;
+        propagating = Passes.contains(UNITS);
+        if (Passes.contains(UNITS) && !unsatisfiable)
+            units();
+        if (Passes.contains(SUBSUME) && !unsatisfiable)
+            subsume();
+        if (Passes.contains(EQUIVALENCE) && !unsatisfiable)
+            substitute();
+        if (Passes.contains(PROBE) && !unsatisfiable)
+            probe();
+        if (Passes.contains(ELIMINATE) && !unsatisfiable)
+            eliminate();
+        if (unsatisfiable)
+            Report.add("Preprocessing refuted the KB");
+        else
+            Report.add("Preprocessing left " + num_live + " of " + before + " clauses");
+        return !unsatisfiable;
+    }
+
+    /* The remaining clauses over the original variable numbering; the empty clause once refuted. */
+    ClauseStore reduced(){
+        ClauseStore KB = new ClauseStore(num_variables);
+        if (unsatisfiable){
+            KB.addClause(new int[0], 0);
+            return KB;
+        }
+        for (int c = 0; c < num_clauses; c++){
+            if (Clauses[c] != null)
+                KB.addClause(Clauses[c].clone(), Clauses[c].length);
+        }
+        return KB;
+    }
+
+    /* Extends a model of reduced() to a model of the original KB. */
+    boolean[] extend(boolean[] Assignment){
+        boolean Model[] = Arrays.copyOf(Assignment, num_variables);
+        int end = extension_size, length, start;
+        boolean satisfied;
+        while (end > 0){
+            length = Extension[end - 1];
+            start = end - 1 - length;
+            satisfied = false;
+            for (int i = start; i < end - 1 && !satisfied; i++)
+                satisfied = Model[ClauseStore.variable(Extension[i])] != ClauseStore.isNegated(Extension[i]);
+            if (!satisfied)
+                Model[ClauseStore.variable(Extension[start])] = !ClauseStore.isNegated(Extension[start]);
+            end = start;
+        }
+        return Model;
+    }
+}
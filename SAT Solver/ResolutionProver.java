@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Saturation by resolution with a given-clause loop.
+ *
+ * Clauses wait in a passive queue ordered by length. The shortest one is
+ * picked, dropped if an active clause subsumes it, used to delete the active
+ * clauses it subsumes, made active, and then resolved only against the active
+ * clauses that contain the complement of one of its literals, found through
+ * the literal occurrence index. Every clause carries a 64-bit signature with
+ * one bit per literal class, so most subsumption candidates are rejected
+ * without comparing literals.
+ *
+ * Resolvents longer than max_length are discarded; when that happens the
+ * run is truncated and saturation no longer proves satisfiability.
+ *
+ * Stop, when set, is polled before each given clause; refute() then returns
+ * false without having saturated anything, and prove() reports TRUNCATED.
+ */
+class ResolutionProver{
+    static final int REFUTED = 0;
+    static final int SATURATED = 1;
+    static final int TRUNCATED = 2;
+
+    public ClauseStore Clauses;
+    public int max_length;
+    public boolean truncated;
+    public long resolvents;
+    public AtomicBoolean Stop;
+
+    private long Signature[];
+    private boolean Deleted[];
+    private int Occurrences[][];
+    private int OccurrenceSize[];
+
+    private int Queue[][];
+    private int QueueHead[];
+    private int QueueSize[];
+    private int min_length;
+
+    private int Resolvent[];
+
+    ResolutionProver(ClauseStore KB, int max_length){
+        this.max_length = max_length;
+        Clauses = new ClauseStore(KB);
+        int num_literals = 2 * KB.num_variables;
+        Occurrences = new int[num_literals][];
+        OccurrenceSize = new int[num_literals];
+        for (int l = 0; l < num_literals; l++)
+            Occurrences[l] = new int[4];
+        Queue = new int[KB.num_variables + 1][];
+        QueueHead = new int[KB.num_variables + 1];
+        QueueSize = new int[KB.num_variables + 1];
+        Signature = new long[Math.max(16, KB.size())];
+        Deleted = new boolean[Signature.length];
+        Resolvent = new int[KB.num_variables + 1];
+    }
+
+    private static long signature(ClauseStore store, int c){
+        long sig = 0;
+        for (int i = store.Start[c]; i < store.Start[c + 1]; i++)
+            sig |= 1L << (store.Literals[i] & 63);
+        return sig;
+    }
+
+    private void grow(){
+        int size = Signature.length * 2;
+        Signature = Arrays.copyOf(Signature, size);
+        Deleted = Arrays.copyOf(Deleted, size);
+    }
+
+    private void enqueue(int c){
+        if (c >= Signature.length)
+            grow();
+        Signature[c] = signature(Clauses, c);
+        int length = Clauses.clauseLength(c);
+        if (Queue[length] == null)
+            Queue[length] = new int[16];
+        if (QueueSize[length] == Queue[length].length)
+            Queue[length] = Arrays.copyOf(Queue[length], QueueSize[length] * 2);
+        Queue[length][QueueSize[length]++] = c;
+        if (length < min_length)
+            min_length = length;
+    }
+
+    private int nextPassive(){
+        while (min_length < Queue.length){
+            if (QueueHead[min_length] < QueueSize[min_length])
+                return Queue[min_length][QueueHead[min_length]++];
+            min_length++;
+        }
+        return -1;
+    }
+
+    private void addOccurrence(int literal, int c){
+        if (OccurrenceSize[literal] == Occurrences[literal].length)
+            Occurrences[literal] = Arrays.copyOf(Occurrences[literal], OccurrenceSize[literal] * 2);
+        Occurrences[literal][OccurrenceSize[literal]++] = c;
+    }
+
+    private boolean isTautology(int c){
+        for (int i = Clauses.Start[c] + 1; i < Clauses.Start[c + 1]; i++){
+            if (Clauses.Literals[i] == ClauseStore.negate(Clauses.Literals[i - 1]))
+                return true;
+        }
+        return false;
+    }
+
+    /* True if the literals of clause a are a subset of those of clause b; both are sorted. */
+    private boolean isSubset(int a, int b){
+        int i = Clauses.Start[a], endA = Clauses.Start[a + 1];
+        int j = Clauses.Start[b], endB = Clauses.Start[b + 1];
+        if (endA - i > endB - j)
+            return false;
+        while (i < endA && j < endB){
+            if (Clauses.Literals[i] == Clauses.Literals[j])
+                i++;
+            else if (Clauses.Literals[i] < Clauses.Literals[j])
+                return false;
+            j++;
+        }
+        return i == endA;
+    }
+
+    /*
+     * An active clause D subsumes C only if D's smallest literal is in C, so
+     * each candidate is looked at once, from the list of that literal.
+     */
+    private boolean isForwardSubsumed(int c){
+        int literal, d;
+        for (int i = Clauses.Start[c]; i < Clauses.Start[c + 1]; i++){
+            literal = Clauses.Literals[i];
+            for (int o = 0; o < OccurrenceSize[literal]; o++){
+                d = Occurrences[literal][o];
+                if (!Deleted[d] && Clauses.Literals[Clauses.Start[d]] == literal
+                        && (Signature[d] & ~Signature[c]) == 0 && isSubset(d, c))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /* Every clause containing C is in the occurrence list of each literal of C; scan the shortest. */
+    private void backwardSubsume(int c){
+        int shortest = Clauses.Literals[Clauses.Start[c]], d;
+        for (int i = Clauses.Start[c] + 1; i < Clauses.Start[c + 1]; i++){
+            if (OccurrenceSize[Clauses.Literals[i]] < OccurrenceSize[shortest])
+                shortest = Clauses.Literals[i];
+        }
+        for (int o = 0; o < OccurrenceSize[shortest]; o++){
+            d = Occurrences[shortest][o];
+            if (!Deleted[d] && (Signature[c] & ~Signature[d]) == 0 && isSubset(c, d))
+                Deleted[d] = true;
+        }
+    }
+
+    private void activate(int c){
+        for (int i = Clauses.Start[c]; i < Clauses.Start[c + 1]; i++)
+            addOccurrence(Clauses.Literals[i], c);
+    }
+
+    /*
+     * Resolves C on literal with D, which contains its complement. Returns the
+     * resolvent length, or -1 if the resolvent is a tautology.
+     */
+    private int resolve(int c, int d, int literal){
+        int length = 0, complement = ClauseStore.negate(literal);
+        int i = Clauses.Start[c], endC = Clauses.Start[c + 1];
+        int j = Clauses.Start[d], endD = Clauses.Start[d + 1];
+        int next;
+        while (i < endC || j < endD){
+            if (j >= endD || (i < endC && Clauses.Literals[i] < Clauses.Literals[j]))
+                next = Clauses.Literals[i++];
+            else if (i >= endC || Clauses.Literals[j] < Clauses.Literals[i])
+                next = Clauses.Literals[j++];
+            else {
+                next = Clauses.Literals[i++];
+                j++;
+            }
+            if (next == literal || next == complement)
+                continue;
+            if (length > 0 && next == ClauseStore.negate(Resolvent[length - 1]))
+                return -1;
+            Resolvent[length++] = next;
+        }
+        return length;
+    }
+
+    /*
+     * REFUTED once the empty clause is derived, SATURATED when the KB is
+     * closed under resolution, which proves it satisfiable, and TRUNCATED
+     * when resolvents were dropped or Stop ended the run, which proves
+     * nothing.
+     */
+    int prove(){
+        if (refute())
+            return REFUTED;
+        if (truncated || (Stop != null && Stop.get()))
+            return TRUNCATED;
+        return SATURATED;
+    }
+
+    /* Returns true once the empty clause is derived. */
+    boolean refute(){
+        int input = Clauses.size();
+        min_length = Queue.length;
+        for (int c = 0; c < input; c++){
+            if (Clauses.clauseLength(c) == 0)
+                return true;
+            if (!isTautology(c))
+                enqueue(c);
+        }
+
+        int given, literal, complement, d, kept, length, size;
+        while ((given = nextPassive()) != -1){
+            if (Stop != null && Stop.get())
+                return false;
+            if (Deleted[given] || isForwardSubsumed(given)){
+                Deleted[given] = true;
+                continue;
+            }
+            backwardSubsume(given);
+            activate(given);
+
+            for (int i = Clauses.Start[given]; i < Clauses.Start[given + 1]; i++){
+                literal = Clauses.Literals[i];
+                complement = ClauseStore.negate(literal);
+                kept = 0;
+                size = OccurrenceSize[complement];
+                for (int o = 0; o < size; o++){
+                    d = Occurrences[complement][o];
+                    if (Deleted[d])
+                        continue;
+                    Occurrences[complement][kept++] = d;
+
+                    length = resolve(given, d, literal);
+                    resolvents++;
+                    if (length == 0)
+                        return true;
+                    if (length < 0)
+                        continue;
+                    if (length > max_length){
+                        truncated = true;
+                        continue;
+                    }
+                    if (Clauses.addClause(Resolvent, length))
+                        enqueue(Clauses.size() - 1);
+                }
+                OccurrenceSize[complement] = kept;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Flip budgets for the successive tries of a local search. max_flips is the
+ * unit: every try gets it under FIXED, try t gets luby(t) times it under
+ * LUBY (1, 1, 2, 1, 1, 2, 4, ...) and GEOMETRIC_FACTOR^t times it under
+ * GEOMETRIC. Short tries end the runaway walks of a heavy-tailed run
+ * early while the growing ones still leave room for the hard instances.
+ */
+class RestartPolicy{
+    static final String FIXED = "fixed";
+    static final String LUBY = "luby";
+    static final String GEOMETRIC = "geometric";
+    static final String POLICIES[] = {FIXED, LUBY, GEOMETRIC};
+    static final double GEOMETRIC_FACTOR = 1.5;
+
+    /* Flips allowed in try number attempt, counting from 0. */
+    static int cutoff(String policy, int max_flips, int attempt){
+        double factor;
+        if (policy.equals(LUBY))
+            factor = CDCLSolver.luby(2, attempt);
+        else if (policy.equals(GEOMETRIC))
+            factor = Math.pow(GEOMETRIC_FACTOR, attempt);
+        else
+            factor = 1;
+        return (int)Math.min(Integer.MAX_VALUE, max_flips * factor);
+    }
+}
@@ -4,300 +4,223 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashSet;
-import java.util.Objects;
+import java.util.Comparator;
 import java.util.Random;
-import java.util.Set;
-
-class Literal{
-    public int chemical;
-    public int container;    
-    
-    Literal (int chemical, int container){
-        this.chemical = chemical;
-        this.container = container;        
-    }
-    
-  
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final Literal other = (Literal) obj;
-        if (this.chemical != other.chemical) {
-            return false;
-        }
-        return this.container == other.container;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 7;
-        hash = 89 * hash + this.chemical;
-        hash = 89 * hash + this.container;
-        return hash;
-    }
-}
-
-class ClauseLiteral{
-    public Literal literal;
-    public boolean isNegated;
-    
-    ClauseLiteral (Literal literal, boolean isNegated){
-        this.literal = literal;
-        this.isNegated = isNegated;        
-    }
-    
-
-    public boolean isNegation(ClauseLiteral other){
-        return this.literal.equals(other.literal) && this.isNegated != other.isNegated;
-    }
-    
-    public ClauseLiteral getNegation(){
-        ClauseLiteral Negation = new ClauseLiteral(this.literal, !this.isNegated);
-        return Negation;        
-    }
-    
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final ClauseLiteral other = (ClauseLiteral) obj;
-        if (!Objects.equals(this.literal, other.literal)) {
-            return false;
-        }
-        return this.isNegated == other.isNegated;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 5;
-        hash = 67 * hash + Objects.hashCode(this.literal);
-        hash = 67 * hash + (this.isNegated ? 1 : 0);
-        return hash;
-    }
-    
-}
-
-class CNFClause{
-    
-    public Set<ClauseLiteral> Literals;
-    
-    CNFClause(){
-        Literals = new HashSet<>();
-    }
-    
-    public void addLiteral(ClauseLiteral lit){        
-        Literals.add(lit);        
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final CNFClause other = (CNFClause) obj;
-
-        return Objects.equals(this.Literals, other.Literals);
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 3;
-        hash = 29 * hash + Objects.hashCode(this.Literals);
-        return hash;
-    }
-
-    
-}
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 class ConstraintSolver{
     public int num_chemicals;
     public int num_containers;
-    public Set<CNFClause> KB;
-    public ClauseLiteral PositiveLiterals[][];
-    public ClauseLiteral NegatedLiterals[][];
+    public ClauseStore KB;
+    public int PositiveLiterals[][];
+    public int NegatedLiterals[][];
     public BitSet Model[];
     public Random randomGenerator;
-    public Set<CNFClause> FalseClauses;
+    public boolean CDCLModel[];
+    public boolean ResolutionTruncated;
+    public String encoding;
+    /* WalkSat tunes its noise on the fly when set, see LocalSearch. */
+    public boolean adaptive;
+    /* Name of the PickStrategy of WalkSat's flips. */
+    public String pick;
+    /* Polled by every engine when set, so that another thread can cancel it. */
+    public AtomicBoolean Stop;
+    /* Wall-clock bound of every engine, see setDeadline. */
+    public Deadline Limit;
+    /* Cancelled when another component of the same run fails, see setCancellation. */
+    public Cancellation Siblings;
+    /* Clauses false under Model after a local search without a model; violated edges for ChemicalSearch. */
+    public int best_unsat;
+    /* Number of WalkSat tries and how their flip budgets grow, see RestartPolicy. */
+    public int max_tries;
+    public String restart;
+    /* Set by preprocess(); setModel(boolean[]) then extends assignments of the reduced KB. */
+    public Preprocessor Simplifier;
+    /* KB as encoded, before any Preprocessor pass, and the full assignment behind Model when there is one. */
+    public ClauseStore Encoded;
+    public boolean Solution[];
     
     
     ConstraintSolver(int num_chemicals, int num_containers){
+        this(num_chemicals, num_containers, CardinalityEncoder.AUTO);
+    }
+    
+    /* encoding names the at-most-one encoding of addExactlyOneConstraint, see CardinalityEncoder. */
+    ConstraintSolver(int num_chemicals, int num_containers, String encoding){
         this.num_chemicals = num_chemicals;
         this.num_containers = num_containers;
-        PositiveLiterals = new ClauseLiteral[num_chemicals][num_containers];
-        NegatedLiterals = new ClauseLiteral[num_chemicals][num_containers];
+        this.encoding = encoding;
+        PositiveLiterals = new int[num_chemicals][num_containers];
+        NegatedLiterals = new int[num_chemicals][num_containers];
         Model = new BitSet[num_chemicals];
-        Literal literal;
+        int variable;
         for (int i = 0; i < num_chemicals; i++){            
             for (int j = 0; j < num_containers; j++){
-                literal = new Literal(i, j);
-                PositiveLiterals[i][j] = new ClauseLiteral(literal, false);
-                NegatedLiterals[i][j] = new ClauseLiteral(literal, true);
+                variable = i * num_containers + j;
+                PositiveLiterals[i][j] = ClauseStore.literal(variable, false);
+                NegatedLiterals[i][j] = ClauseStore.literal(variable, true);
             }
         }
         
         for (int i = 0; i < num_chemicals; i++){
             Model[i] = new BitSet(num_containers);
         }
-        KB = new HashSet<>();
-        FalseClauses = new HashSet<>();
+        KB = new ClauseStore(num_chemicals * num_containers);
         randomGenerator = new Random();
+        max_tries = 1;
+        pick = PickStrategy.WALKSAT;
+        restart = RestartPolicy.FIXED;
     }
 
     
         
     void addExactlyOneConstraint(){
         
-        CNFClause AtLeastOneClause, AtMostOneClause;
-        for (int i = 0; i < num_chemicals; i++){                        
-            AtMostOneClause = new CNFClause();
-            for (int j = 0; j < num_containers; j++){
-
-                AtMostOneClause.addLiteral(PositiveLiterals[i][j]);                
-                
-                for (int k = j + 1; k < num_containers; k++){
-                    AtLeastOneClause = new CNFClause();
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][j]);
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][k]);                    
-                    KB.add(AtLeastOneClause);
-                }
-            }
-            
-            KB.add(AtMostOneClause);
-        }            
+        for (int i = 0; i < num_chemicals; i++){
+            CardinalityEncoder.addExactlyOne(KB, PositiveLiterals[i], num_containers, encoding);
+        }
         
     }
     
+    void addSymmetryBreakingConstraint(int[] Order){
+        int chemical;
+        for (int i = 0; i + 1 < num_containers && i < num_chemicals; i++){
+            chemical = Order == null ? i : Order[i];
+            for (int j = i + 1; j < num_containers; j++){
+                KB.addClause(NegatedLiterals[chemical][j]);
+            }
+        }
+    }
+    
     void addSeparateConstraint(int chemical1, int chemical2){
-        CNFClause SeparateClause;
         for (int i = 0; i < num_containers; i++){
-            SeparateClause = new CNFClause();
-            SeparateClause.addLiteral(NegatedLiterals[chemical1][i]);
-            SeparateClause.addLiteral(NegatedLiterals[chemical2][i]);
-            KB.add(SeparateClause);
+            KB.addClause(NegatedLiterals[chemical1][i], NegatedLiterals[chemical2][i]);
         }        
     }
     
     void addTogetherConstraint(int chemical1, int chemical2){
-        CNFClause TogetherClause;
         for (int j = 0; j < num_containers; j++){
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(NegatedLiterals[chemical1][j]);
-            TogetherClause.addLiteral(PositiveLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
-            
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(PositiveLiterals[chemical1][j]);
-            TogetherClause.addLiteral(NegatedLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
+            KB.addClause(NegatedLiterals[chemical1][j], PositiveLiterals[chemical2][j]);
+            KB.addClause(PositiveLiterals[chemical1][j], NegatedLiterals[chemical2][j]);
         }
     }
     
-        boolean containsSubset(Set<CNFClause> KB1, CNFClause C1){
-        int size = C1.Literals.size();
-        CNFClause C2 = new CNFClause();
-        ClauseLiteral lit[] = C1.Literals.toArray(new ClauseLiteral[0]);
-        long j;
-        int bit;
-        for (long i = 0; i < Math.pow(2, size); i++){
-            j = i;
-            bit = 0;
-            while (j!=0){
-                if ((j & 1) == 1){
-                    C2.addLiteral(lit[bit]);                    
-                }
-                j = j>>1;
-                bit++;
-            }
-            if (KB1.contains(C2))
-                return true;
-            C2.Literals.clear();
-        }
-        return false;
+    void addConstraints(ChemicalGraph Graph){
+        addExactlyOneConstraint();
+        for (int e = 0; e < Graph.num_together; e++)
+            addTogetherConstraint(Graph.Together[2 * e], Graph.Together[2 * e + 1]);
+        for (int e = 0; e < Graph.num_separate; e++)
+            addSeparateConstraint(Graph.Separate[2 * e], Graph.Separate[2 * e + 1]);
     }
-        
-    Set<CNFClause> PLResolve(Set<CNFClause> KB1, CNFClause C1, CNFClause C2){
-        Set<CNFClause> Resolvents = new HashSet<>();
-        CNFClause clause = new CNFClause();
-        ClauseLiteral ResolvingLiteral = null;        
-        
-        int count = 0;
-        for (ClauseLiteral lit1 : C1.Literals){
-            for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit1.equals(lit2) && lit1.isNegation(lit2)){
-                    if (count == 0)
-                      ResolvingLiteral = lit1;
-                    else
-                       return Resolvents;
-                    count++;
-                }                    
-            }
-        }
-        
-        if (ResolvingLiteral == null)
-            return Resolvents;
-        
-        for (ClauseLiteral lit1 : C1.Literals){
-                if(!lit1.equals(ResolvingLiteral) && !lit1.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit1);
-        }
-
-        for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit2.equals(ResolvingLiteral) && !lit2.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit2);
-        }
-        
-        if(clause.Literals.isEmpty())
-            return null;
-        
-        else if (containsSubset(KB1, clause))
-            return Resolvents;
-        
-        Resolvents.add(clause);        
-        return Resolvents;
+    
+    /*
+     * Replaces KB by its simplification under the given Preprocessor passes.
+     * Returns false when they refute it.
+     */
+    boolean preprocess(String[] passes){
+        Encoded = KB;
+        Simplifier = new Preprocessor(KB, passes);
+        Simplifier.Stop = Stop;
+        boolean satisfiable = Simplifier.run();
+        KB = Simplifier.reduced();
+        return satisfiable;
     }
     
-    boolean PLSatisfiability(Set<CNFClause> KB1){
-        Set<CNFClause> Resolvents;
-        
-        Set<CNFClause> KBCopy = new HashSet<>(KB1);
-        Set<CNFClause> New = new HashSet<>();
-        
-        while (true){
-            for(CNFClause C1 : KBCopy){
-                for(CNFClause C2 : KBCopy){
-                    
-                    Resolvents = PLResolve(KB1, C1, C2);
-                    if (Resolvents == null)
-                        return false;
-                    
-                    New.addAll(Resolvents);                        
-                }
-            }
-                                
-            if (KBCopy.containsAll(New))
-                return true;
-
-            KBCopy.addAll(New);     
-            
-        }        
+    int PLSatisfiability(ClauseStore KB1){
+        return PLSatisfiability(KB1, Integer.MAX_VALUE);
+    }
+    
+    /*
+     * Saturates KB1 by resolution, keeping resolvents of at most max_length
+     * literals. Returns ResolutionProver.REFUTED, SATURATED or TRUNCATED; only
+     * SATURATED proves KB1 satisfiable.
+     */
+    int PLSatisfiability(ClauseStore KB1, int max_length){
+        ResolutionProver Prover = new ResolutionProver(KB1, max_length);
+        Prover.Stop = Stop;
+        int result = Prover.prove();
+        ResolutionTruncated = result != ResolutionProver.REFUTED && Prover.truncated;
+        return result;
+    }
+    
+    /* Returns CDCLSolver.SATISFIABLE, with CDCLModel set, UNSATISFIABLE or STOPPED. */
+    int CDCLSatisfiability(ClauseStore KB1){
+        CDCLSolver Solver = new CDCLSolver(KB1);
+        Solver.Stop = Stop;
+        int result = Solver.decide();
+        if (result == CDCLSolver.SATISFIABLE)
+            CDCLModel = Solver.Model;
+        return result;
+    }
+    
+    /*
+     * CDCL on cubes of Graph's chemicals in parallel, see CubeAndConquer.
+     * interchangeable is false once symmetry-breaking clauses are in KB1.
+     */
+    int CubeSatisfiability(ClauseStore KB1, ChemicalGraph Graph, boolean interchangeable){
+        CubeAndConquer Solver = new CubeAndConquer(KB1, Graph, interchangeable);
+        if (Stop != null)
+            Solver.Stop = Stop;
+        int result = Solver.decide();
+        if (result == CDCLSolver.SATISFIABLE)
+            CDCLModel = Solver.Model;
+        return result;
+    }
+    
+    boolean TwoSatSatisfiability(ClauseStore KB1){
+        TwoSatSolver Solver = new TwoSatSolver(KB1);
+        if (!Solver.solve())
+            return false;
+        setModel(Solver.Model);
+        return true;
+    }
+    
+    /* True once Stop is set, except for the first try, which always runs so that Model is set. */
+    private boolean isStopped(int attempt){
+        return attempt > 0 && Stop != null && Stop.get();
+    }
+    
+    /*
+     * Bounds every engine by Limit: Stop, created if there is none, is set
+     * once Limit expires. A complete engine stopped this way answers
+     * CDCLSolver.STOPPED rather than a refutation, and stopped() holds.
+     */
+    void setDeadline(Deadline Limit){
+        this.Limit = Limit;
+        setStop(Stop == null ? new AtomicBoolean() : Stop);
+    }
+    
+    /* Stops every engine, like setDeadline, once Siblings is cancelled; cancelled() then holds. */
+    void setCancellation(Cancellation Siblings){
+        this.Siblings = Siblings;
+        setStop(Stop == null ? new AtomicBoolean() : Stop);
+    }
+    
+    /* Replaces Stop, keeping the new flag under Limit and Siblings when there are any. */
+    void setStop(AtomicBoolean Flag){
+        Stop = Flag;
+        if (Limit != null && Flag != null)
+            Limit.watch(Flag);
+        if (Siblings != null && Flag != null)
+            Siblings.watch(Flag);
+    }
+    
+    boolean cancelled(){
+        return Siblings != null && Siblings.cancelled();
+    }
+    
+    /* True once Stop is set, whether by Limit, by Siblings or by a race. */
+    boolean stopped(){
+        return Stop != null && Stop.get();
+    }
+    
+    boolean timedOut(){
+        return Limit != null && Limit.expired();
     }
     
     int getRandomNumber(int start, int end){
@@ -305,119 +228,183 @@ class ConstraintSolver{
         return random;
     }
     
-    boolean doRandom(double p){
-        return randomGenerator.nextDouble() <= p;
+    void setModel(int[] containerOf){
+        Solution = null;
+        for (int i = 0; i < num_chemicals; i++){
+            Model[i].clear();
+            Model[i].set(containerOf[i]);
+        }
     }
     
-    void getAllFalseClauses(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses){        
-        int chemical, container;
-        boolean isNegated, value, satisfied;
-
-        for (CNFClause Clause : KB1){
-            satisfied = false;
-            for (ClauseLiteral Literal : Clause.Literals){
-                chemical = Literal.literal.chemical;
-                container = Literal.literal.container;
-                isNegated = Literal.isNegated;
-                value = Model[chemical].get(container);
-                if (value == !isNegated){
-                    satisfied = true;
-                    break;
-                }                    
+    void setModel(boolean[] Assignment){
+        if (Simplifier != null)
+            Assignment = Simplifier.extend(Assignment);
+        Solution = Assignment;
+        for (int i = 0; i < num_chemicals; i++){
+            for (int j = 0; j < num_containers; j++){
+                Model[i].set(j, Assignment[i * num_containers + j]);
             }
-            if (!satisfied)
-                FalseClauses.add(Clause);
-            
         }
     }
-    CNFClause getRandomFalseClause(Set<CNFClause> KB1, Set<CNFClause> FalseClauses){
-        
-        int random;
-        int i = 0;
-
-        random = getRandomNumber(0, FalseClauses.size() - 1);
-        for (CNFClause Clause : FalseClauses){
-            if (i == random)
-               return Clause;            
-            i++;
+    
+    /*
+     * Number of constraints of Graph that Model breaks, checked on the
+     * placements alone so that no encoding is trusted: every chemical in
+     * exactly one container, a together pair in the same container and a
+     * separate pair in different ones. When Model came from an assignment,
+     * the clauses of the encoded KB that it leaves false are counted too,
+     * which also checks the Preprocessor's model reconstruction.
+     */
+    int checkModel(ChemicalGraph Graph){
+        int violated = 0;
+        for (int i = 0; i < num_chemicals; i++){
+            if (Model[i].cardinality() != 1)
+                violated++;
         }
-        return null;
-
-    }
-    ClauseLiteral getRandomLiteral(CNFClause Clause){        
-
-        int random = getRandomNumber(0, Clause.Literals.size() - 1);
-        int i = 0;
-        ClauseLiteral RandomLiteral = null;
-                
-        for (ClauseLiteral literal : Clause.Literals){
-            if (i == random){
-                RandomLiteral = literal;
-                break;
-            }                
-            i++;
+        for (int e = 0; e < Graph.num_together; e++){
+            if (!Model[Graph.Together[2 * e]].equals(Model[Graph.Together[2 * e + 1]]))
+                violated++;
         }
-        
-        return RandomLiteral;
+        for (int e = 0; e < Graph.num_separate; e++){
+            if (Model[Graph.Separate[2 * e]].intersects(Model[Graph.Separate[2 * e + 1]]))
+                violated++;
+        }
+        if (Solution != null)
+            violated += ClauseEvaluator.create(Encoded != null ? Encoded : KB).countFalse(Solution);
+        return violated;
     }
     
-    ClauseLiteral getMaximizingLiteral(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses, CNFClause Clause){
-        int max = 0;
-        ClauseLiteral MaxLiteral = null;
-        int refcount;
-        int chemical, container;
+   
+    /*
+     * Up to max_tries walks from fresh random assignments, try t allowed
+     * RestartPolicy.cutoff(restart, max_flips, t) flips. When none finds a
+     * model, Model is the assignment with the fewest unsatisfied clauses
+     * seen in any try, best_unsat of them.
+     */
+    boolean WalkSat(ClauseStore KB1, double p, int max_flips){
         
-        for (ClauseLiteral clauseliteral : Clause.Literals){
-            chemical = clauseliteral.literal.chemical;
-            container = clauseliteral.literal.container;
-            refcount = 0;
-            for (CNFClause FalseClause : FalseClauses){
-                if (FalseClause.Literals.contains(clauseliteral))
-                    refcount++;
+        int random, cutoff;
+        boolean Assignment[] = new boolean[KB1.num_variables];
+        boolean Best[] = null;
+        LocalSearch Search = new LocalSearch(KB1, randomGenerator);
+        Search.adaptive = adaptive;
+        Search.Strategy = PickStrategy.forName(pick);
+        Search.Stop = Stop;
+        best_unsat = Integer.MAX_VALUE;
+
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            for (int i = 0; i < num_chemicals; i++){
+                random = getRandomNumber(0, num_containers - 1);
+                Model[i].clear();
+                Model[i].set(random);
+                for (int j = 0; j < num_containers; j++){
+                    Assignment[i * num_containers + j] = Model[i].get(j);
+                }
             }
             
-            if (refcount > max){
-                max = refcount;
-                MaxLiteral = clauseliteral;
+            Search.initialize(Assignment);
+            cutoff = RestartPolicy.cutoff(restart, max_flips, t);
+            if (Search.solve(p, cutoff)){
+                setModel(Search.Assignment);
+                return true;
             }
-                
-        }            
-        return MaxLiteral;
+            if (Search.best_unsat < best_unsat){
+                best_unsat = Search.best_unsat;
+                Best = Search.Best.clone();
+            }
+        }
+        setModel(Best);
+        return false;
     }
     
-   
-    boolean WalkSat(Set<CNFClause> KB1, double p, int max_flips){
+    /*
+     * WalkSat on num_workers threads, see WalkSatPortfolio. Each worker has
+     * its own seed and random start; worker 0 keeps p and the others spread
+     * their noise over p/2 to 3p/2. One worker is plain WalkSat.
+     */
+    boolean WalkSat(ClauseStore KB1, double p, int max_flips, int num_workers){
+        if (num_workers <= 1)
+            return WalkSat(KB1, p, max_flips);
         
-        int random, chemical, container;
-        ClauseLiteral flipLiteral;
-        CNFClause RandomClause;
-
-        for (int i = 0; i < num_chemicals; i++){
-            random = getRandomNumber(0, num_containers - 1);
-            Model[i].set(random);
+        WalkSatPortfolio Portfolio = new WalkSatPortfolio(KB1);
+        if (Stop != null)
+            Portfolio.Stop = Stop;
+        Random Worker;
+        LocalSearch Search;
+        boolean Start[];
+        for (int w = 0; w < num_workers; w++){
+            Worker = new Random(randomGenerator.nextLong());
+            Start = new boolean[KB1.num_variables];
+            for (int i = 0; i < num_chemicals; i++)
+                Start[i * num_containers + Worker.nextInt(num_containers)] = true;
+            Search = new LocalSearch(KB1, Worker);
+            Search.adaptive = adaptive;
+            Search.Strategy = PickStrategy.forName(pick);
+            Portfolio.addWorker(Search, Start, w == 0 ? p : Math.min(1.0, p * (0.5 + (double)w / num_workers)));
         }
+        boolean satisfied = Portfolio.solve(max_flips);
+        best_unsat = Portfolio.best_unsat;
+        setModel(Portfolio.Assignment);
+        return satisfied;
+    }
+    
+    /*
+     * Clause-weighting local search (PAWS) on KB1, see ClauseWeightingSearch,
+     * with the tries and flip budgets of WalkSat. The weights start afresh
+     * with every try.
+     */
+    boolean ClauseWeighting(ClauseStore KB1, int max_flips){
         
-        for (int i = 0; i < max_flips; i++){
-            
-            FalseClauses.clear();
-            getAllFalseClauses(KB1, Model, FalseClauses);
-            
-            if (FalseClauses.isEmpty())
-                return true;           
-            
-            
-            RandomClause = getRandomFalseClause(KB1, FalseClauses);
-            if (doRandom(p))
-                flipLiteral = getRandomLiteral(RandomClause);
-            else 
-                flipLiteral = getMaximizingLiteral(KB1, Model, FalseClauses, RandomClause);
-
-                        
-            chemical = flipLiteral.literal.chemical;
-            container = flipLiteral.literal.container;                 
+        int random;
+        boolean Assignment[] = new boolean[KB1.num_variables];
+        boolean Best[] = null;
+        ClauseWeightingSearch Search = new ClauseWeightingSearch(KB1, randomGenerator);
+        Search.Stop = Stop;
+        best_unsat = Integer.MAX_VALUE;
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            for (int i = 0; i < num_chemicals; i++){
+                random = getRandomNumber(0, num_containers - 1);
+                for (int j = 0; j < num_containers; j++)
+                    Assignment[i * num_containers + j] = j == random;
+            }
             
-            Model[chemical].flip(container);             
+            Search.initialize(Assignment);
+            if (Search.solve(RestartPolicy.cutoff(restart, max_flips, t))){
+                setModel(Search.Assignment);
+                return true;
+            }
+            if (Search.best_unsat < best_unsat){
+                best_unsat = Search.best_unsat;
+                Best = Search.Best.clone();
+            }
         }
+        setModel(Best);
+        return false;
+    }
+    
+    /*
+     * Local search over whole chemicals: each chemical sits in exactly one
+     * container and a move relocates one of them. p, max_flips and the tries
+     * mean what they mean for WalkSat.
+     */
+    boolean ChemicalSearch(ChemicalGraph Graph, double p, int max_flips){
+        
+        AssignmentSearch Search = new AssignmentSearch(Graph, randomGenerator);
+        Search.Stop = Stop;
+        int Best[] = null;
+        best_unsat = Integer.MAX_VALUE;
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            Search.initialize(Search.getRandomAssignment());
+            if (Search.solve(p, RestartPolicy.cutoff(restart, max_flips, t))){
+                setModel(Search.containerOf);
+                return true;
+            }
+            if (Search.best_violated < best_unsat){
+                best_unsat = Search.best_violated;
+                Best = Search.BestContainerOf.clone();
+            }
+        }
+        setModel(Best);
         return false;
     }
     
@@ -431,8 +418,8 @@ class FileIO{
         FilePath = p;
     }
     
-    ConstraintSolver readTextFile() {
-        ConstraintSolver SATSolver = null;
+    ChemicalGraph readGraph() {
+        ChemicalGraph Graph = null;
         int row = 0, num_chemicals = 0, num_containers, value;
         try(FileReader inputFile = new FileReader(FilePath);
             BufferedReader bufRead = new BufferedReader(inputFile);){
@@ -448,25 +435,24 @@ class FileIO{
                         return null;
                     num_chemicals = Integer.parseInt(numbers[0]);
                     num_containers = Integer.parseInt(numbers[1]);
-                    SATSolver = new ConstraintSolver(num_chemicals, num_containers);
-                    SATSolver.addExactlyOneConstraint();
+                    Graph = new ChemicalGraph(num_chemicals, num_containers);
                 }
                 else {
                     for (int i = row; i < num_chemicals && i < numbers.length; i++) {
                         
-                        if(SATSolver == null)
+                        if(Graph == null)
                             return null;
                         
                         value = Integer.parseInt(numbers[i]);  
                         if(value == 1)
-                            SATSolver.addTogetherConstraint(row - 1, i);
+                            Graph.addTogether(row - 1, i);
                         else if (value == -1)
-                            SATSolver.addSeparateConstraint(row - 1, i);                        
+                            Graph.addSeparate(row - 1, i);                        
                     }                    
                 }
                 row++;
             }
-            return SATSolver;
+            return Graph;
         }
         catch(IOException | NumberFormatException e){
             return null;
@@ -488,20 +474,33 @@ class FileIO{
   }
   
    boolean writeSolutionToFile(BitSet[] Model, int num_chemicals, int num_containers){
-      
-      
+      return writeSolutionToFile(Model, null, num_chemicals, num_containers);
+  }
+  
+  /*
+   * Model may be indexed by together group instead of chemical; Group[j] is
+   * then the group of chemical j. A null Group means Model is per chemical.
+   */
+   boolean writeSolutionToFile(BitSet[] Model, int[] Group, int num_chemicals, int num_containers){
+      return writeSolutionToFile(Model == null ? "0" : "1", Model, Group, num_chemicals, num_containers);
+  }
+  
+  /*
+   * status is the first line written: 0 without a model, 1 with one,
+   * unknown when the search ended without an answer, followed by the best
+   * assignment found when Model is not null, or error when a model failed
+   * its final check.
+   */
+   boolean writeSolutionToFile(String status, BitSet[] Model, int[] Group, int num_chemicals, int num_containers){
       
       try (PrintWriter writer = new PrintWriter(FilePath, "UTF-8")) {
+            writer.println(status);
             if (Model == null)
-            {
-                writer.println("0");
                 return true;
-            }
             
-            writer.println("1");
             for (int i = 0; i < num_containers; i++) {
                 for (int j = 0; j < num_chemicals; j++) {
-                    if (Model[j].get(i))
+                    if (Model[Group == null ? j : Group[j]].get(i))
                         writer.print("1 ");
                     else
                         writer.print("0 ");
@@ -517,18 +516,23 @@ class FileIO{
       return true;
   }
   
-  void printSolution(BitSet[] Model, int num_chemicals, int num_containers){      
+  void printSolution(BitSet[] Model, int num_chemicals, int num_containers){
+      printSolution(Model, null, num_chemicals, num_containers);
+  }
+  
+  void printSolution(BitSet[] Model, int[] Group, int num_chemicals, int num_containers){
+      printSolution(Model == null ? "0" : "1", Model, Group, num_chemicals, num_containers);
+  }
+  
+  void printSolution(String status, BitSet[] Model, int[] Group, int num_chemicals, int num_containers){      
       
+        System.out.println(status);
         if (Model == null)
-        {
-            System.out.println("0");
             return;
-        }
             
-        System.out.println("1");
         for (int i = 0; i < num_containers; i++) {
             for (int j = 0; j < num_chemicals; j++) {
-                if (Model[j].get(i))
+                if (Model[Group == null ? j : Group[j]].get(i))
                     System.out.print("1 ");
                 else
                     System.out.print("0 ");
@@ -538,27 +542,40 @@ class FileIO{
       }
       
   }
-  void printKB(Set<CNFClause> KB){
+  void printKB(ClauseStore KB, int num_chemicals, int num_containers){
+        printKB(KB, null, num_chemicals, num_containers);
+  }
+  
+  /*
+   * Chemical maps the chemicals of KB to the numbers printed; null prints them
+   * as they are. Auxiliary variables of the cardinality encodings are printed
+   * as Y0, Y1, ... after the num_chemicals * num_containers placement symbols.
+   */
+  void printKB(ClauseStore KB, int[] Chemical, int num_chemicals, int num_containers){
         
-            Set<ClauseLiteral> Literals;
-            Literal literal;
-            int ClauseCount = 0, LiteralCount;
+            int literal, variable, chemical;
+            int ClauseCount = 0;
+            String symbol;
             System.out.println();
-            for (CNFClause Clause : KB){
-                Literals = Clause.Literals;
+            for (int Clause = 0; Clause < KB.size(); Clause++){
                 System.out.print(ClauseCount + 1 + ") ");
-                LiteralCount = 0;
-                for (ClauseLiteral clauseliteral : Literals){
-                    if(clauseliteral.isNegated)
+                for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+                    literal = KB.Literals[i];
+                    if(ClauseStore.isNegated(literal))
                         System.out.print("~");
                     
-                    literal = clauseliteral.literal;
+                    variable = ClauseStore.variable(literal);
+                    if (variable >= num_chemicals * num_containers)
+                        symbol = "Y" + (variable - num_chemicals * num_containers);
+                    else {
+                        chemical = Chemical == null ? variable / num_containers : Chemical[variable / num_containers];
+                        symbol = "X" + chemical + "," + variable % num_containers;
+                    }
                     
-                    if(LiteralCount != Literals.size() - 1)
-                        System.out.print("X" + literal.chemical + "," + literal.container + " V ");
+                    if(i != KB.Start[Clause + 1] - 1)
+                        System.out.print(symbol + " V ");
                     else
-                        System.out.print("X" + literal.chemical + "," + literal.container);
-                    LiteralCount++;
+                        System.out.print(symbol);
                 }
                 ClauseCount++;
                 System.out.println();    
@@ -567,64 +584,441 @@ class FileIO{
             System.out.println();
     }
 }
+
+/*
+ * Solves the KB of one connected component, after the Preprocessor passes
+ * when there are any: as 2-SAT when every clause is binary, otherwise with
+ * the complete engine, followed by local search when it gives no model.
+ * Components run in parallel, so messages go to Log and are printed in
+ * component order once all of them have finished. A component that is
+ * refuted or finds no model cancels Failed, which every component's solver
+ * watches: the ones still running stop and those not started yet are
+ * skipped, and both report SKIPPED. A component cut short by the solver's
+ * Deadline, or whose complete engine threw while racing, is UNKNOWN
+ * instead, with the best assignment its local search saw as Model; it
+ * leaves Failed alone, so that the others still return their own best
+ * assignments.
+ */
+class ComponentTask extends RecursiveAction{
+    static final int SOLVED = 0;
+    static final int UNSATISFIABLE = 1;
+    static final int NOT_FOUND = 2;
+    static final int SKIPPED = 3;
+    static final int UNKNOWN = 4;
+    private static final long serialVersionUID = 1L;
+    
+    public ConstraintSolver Solver;
+    public StringBuilder Log;
+    public int status;
+    private ChemicalGraph Graph;
+    private String complete;
+    private String local;
+    private int max_resolvent;
+    private double p;
+    private int max_flips;
+    private int workers;
+    private boolean symmetry;
+    private boolean race;
+    private String Passes[];
+    private String name;
+    private Cancellation Failed;
+    
+    ComponentTask(ConstraintSolver Solver, ChemicalGraph Graph, String complete, String local, int max_resolvent, double p, int max_flips, int workers, boolean symmetry, boolean race, String[] Passes, Cancellation Failed){
+        this.Solver = Solver;
+        this.Graph = Graph;
+        this.complete = complete;
+        this.local = local;
+        this.max_resolvent = max_resolvent;
+        this.p = p;
+        this.max_flips = max_flips;
+        this.workers = workers;
+        this.symmetry = symmetry;
+        this.race = race;
+        this.Passes = Passes;
+        name = local.equals("chemical") ? "Chemical search" : local.equals("paws") ? "PAWS" : "WalkSAT";
+        this.Failed = Failed;
+        Log = new StringBuilder();
+    }
+    
+    @Override
+    protected void compute(){
+        if (Failed.cancelled()){
+            status = SKIPPED;
+            return;
+        }
+        status = solve();
+        if (status == UNSATISFIABLE || status == NOT_FOUND)
+            Failed.cancel();
+        else if (status == SKIPPED)
+            Log.append("Stopped after another component failed\n");
+    }
+    
+    private int solve(){
+        if (Passes.length > 0){
+            boolean satisfiable = Solver.preprocess(Passes);
+            for (String line : Solver.Simplifier.Report)
+                Log.append(line + "\n");
+            if (!satisfiable)
+                return UNSATISFIABLE;
+        }
+        
+        if (TwoSatSolver.isTwoSat(Solver.KB)){
+            Log.append("Every clause is binary, solving as 2-SAT\n");
+            return Solver.TwoSatSatisfiability(Solver.KB) ? SOLVED : UNSATISFIABLE;
+        }
+        
+        int result;
+        boolean failed = false;
+        if (race){
+            EngineRace Race = new EngineRace();
+            AtomicBoolean Own = Solver.Stop;
+            Solver.setStop(Race.Stop);
+            Race.run(this::complete, () -> Solver.CDCLModel != null, this::local);
+            Solver.Stop = Own;
+            truncated();
+            if (Race.found){
+                Log.append(name + " found a model while racing the complete engine\n");
+                return SOLVED;
+            }
+            result = Race.result;
+            if (Race.Failure != null){
+                Log.append("The complete engine failed: " + Race.Failure + "\n");
+                failed = true;
+            }
+            else if (result == CDCLSolver.UNSATISFIABLE)
+                return UNSATISFIABLE;
+            else if (result == CDCLSolver.SATISFIABLE && Solver.CDCLModel != null){
+                Log.append("The complete engine found a model while racing " + name + "\n");
+                Solver.setModel(Solver.CDCLModel);
+                return SOLVED;
+            }
+            /* The walk ended on its own only if nothing set the race's Stop. */
+            if (Race.Stop.get())
+                result = CDCLSolver.STOPPED;
+        }
+        else {
+            result = complete();
+            truncated();
+            if (result == CDCLSolver.UNSATISFIABLE)
+                return UNSATISFIABLE;
+            if (result == CDCLSolver.STOPPED && Solver.cancelled())
+                return SKIPPED;
+            /* A model from the complete engine settles it; the walk is for resolution and timeouts. */
+            if (result == CDCLSolver.SATISFIABLE && Solver.CDCLModel != null){
+                Log.append("The complete engine found a model\n");
+                Solver.setModel(Solver.CDCLModel);
+                return SOLVED;
+            }
+            if (local())
+                return SOLVED;
+            if (Solver.stopped())
+                result = CDCLSolver.STOPPED;
+        }
+        
+        if (result == CDCLSolver.STOPPED || failed){
+            if (Solver.cancelled())
+                return SKIPPED;
+            Log.append((failed ? "No answer" : "Time limit reached") + "; the best assignment found leaves " + Solver.best_unsat + (local.equals("chemical") ? " constraints violated\n" : " clauses unsatisfied\n"));
+            return UNKNOWN;
+        }
+        Log.append(name + " failed to find a solution\n");
+        return NOT_FOUND;
+    }
+    
+    /*
+     * CDCLSolver.SATISFIABLE, UNSATISFIABLE or STOPPED. Resolution counts as
+     * SATISFIABLE whenever it ends without a refutation and was not stopped,
+     * and leaves the model to the local search.
+     */
+    private int complete(){
+        if (complete.equals("resolution")){
+            if (Solver.PLSatisfiability(Solver.KB, max_resolvent) == ResolutionProver.REFUTED)
+                return CDCLSolver.UNSATISFIABLE;
+            return Solver.stopped() ? CDCLSolver.STOPPED : CDCLSolver.SATISFIABLE;
+        }
+        if (complete.equals("cube"))
+            return Solver.CubeSatisfiability(Solver.KB, Graph, !symmetry);
+        return Solver.CDCLSatisfiability(Solver.KB);
+    }
+    
+    /* Logged by the task's own thread once the engine is done, as the race runs it on another one. */
+    private void truncated(){
+        if (Solver.ResolutionTruncated)
+            Log.append("Resolution dropped resolvents longer than " + max_resolvent + "; no refutation was found within that bound\n");
+    }
+    
+    private boolean local(){
+        if (local.equals("chemical"))
+            return Solver.ChemicalSearch(Graph, p, max_flips);
+        if (local.equals("paws"))
+            return Solver.ClauseWeighting(Solver.KB, max_flips);
+        return Solver.WalkSat(Solver.KB, p, max_flips, workers);
+    }
+}
             
 public class SATSolver {
 
+    public static void printIncorrectArguments(){
+        System.out.println("Incorrect command.");
+        System.out.println("Usage :java SATSolver <input_file> <output_file> <p> <max_flips> [options]");
+        System.out.println("Options:");
+        System.out.println("  -complete cdcl|resolution|cube|cp");
+        System.out.println("                              complete engine; cdcl and cube return a model, resolution only");
+        System.out.println("                              decides and leaves the model to the local search,");
+        System.out.println("                              cube splits CDCL over container choices on every core,");
+        System.out.println("                              cp searches the matrix directly for up to 64 containers (default cdcl)");
+        System.out.println("  -max_resolvent <length>     longest resolvent kept by resolution (default unbounded)");
+        System.out.println("  -local walksat|chemical|paws");
+        System.out.println("                              local search over clause bits, chemical moves, or clause bits");
+        System.out.println("                              with PAWS clause weights, which ignores p (default walksat)");
+        System.out.println("  -merge_together on|off      encode each together group as one chemical (default on)");
+        System.out.println("  -symmetry on|off            rule out container relabellings (default off)");
+        System.out.println("  -amo auto|pairwise|sequential|commander|product");
+        System.out.println("                              at-most-one encoding of each chemical (default auto, chosen from M)");
+        System.out.println("  -presolve on|off            settle the instance by a separate clique or a DSATUR colouring");
+        System.out.println("                              before building clauses (default on)");
+        System.out.println("  -workers <count>            parallel WalkSat runs with their own seed and noise; the first");
+        System.out.println("                              model found stops the others (default 1)");
+        System.out.println("  -noise fixed|adaptive       keep WalkSat's noise at p, or start at p and raise it while the");
+        System.out.println("                              walk stagnates, lowering it after improvements (default fixed)");
+        System.out.println("  -max_tries <count>          local search tries from fresh random assignments (default 1)");
+        System.out.println("  -restart fixed|luby|geometric");
+        System.out.println("                              flip budget of each try: max_flips, or max_flips times the Luby");
+        System.out.println("                              sequence or 1.5^try (default fixed)");
+        System.out.println("  -pick walksat|novelty+|probsat-poly|probsat-exp|tabu");
+        System.out.println("                              literal WalkSat flips in a false clause (default walksat)");
+        System.out.println("  -race on|off                run the complete engine on its own thread alongside the local");
+        System.out.println("                              search and take whichever answers first (default off)");
+        System.out.println("  -preprocess none|all|<passes>");
+        System.out.println("                              simplify the KB before solving with a comma-separated list of");
+        System.out.println("                              units, subsume, equiv, probe and eliminate (default none)");
+        System.out.println("  -timeout <seconds>          stop every engine after this wall-clock time and write unknown");
+        System.out.println("                              with the best assignment found so far (default none)");
+        System.out.println("The final model check uses the incubating Vector API when VectorClauseEvaluator is built and");
+        System.out.println("the module is added:");
+        System.out.println("  javac --add-modules jdk.incubator.vector SATSolver.java VectorClauseEvaluator.java");
+        System.out.println("  java --add-modules jdk.incubator.vector SATSolver <input_file> <output_file> <p> <max_flips> [options]");
+    }
+
+    /* Group is null when Model is indexed by the chemicals themselves. */
+    static void writeSolution(FileIO IOHandle, BitSet[] Model, int[] Group, int num_containers){
+        int num_chemicals = Group == null ? Model.length : Group.length;
+        if (!IOHandle.writeSolutionToFile(Model, Group, num_chemicals, num_containers)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution(Model, Group, num_chemicals, num_containers);
+        }
+    }
+
+    /* Model is the best assignment found when the time limit ended the search, or null. */
+    static void writeUnknown(FileIO IOHandle, BitSet[] Model, int[] Group, int num_containers){
+        int num_chemicals = Model == null ? 0 : Group == null ? Model.length : Group.length;
+        if (!IOHandle.writeSolutionToFile("unknown", Model, Group, num_chemicals, num_containers)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution("unknown", Model, Group, num_chemicals, num_containers);
+        }
+    }
+
+    static void writeNoSolution(FileIO IOHandle){
+        if (!IOHandle.writeSolutionToFile(null, 0, 0)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution(null, 0, 0);
+        }
+    }
+
+    /* A model that fails checkModel is a bug in an engine or an encoding, not an answer. */
+    static void writeError(FileIO IOHandle){
+        if (!IOHandle.writeSolutionToFile("error", null, null, 0, 0)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution("error", null, null, 0, 0);
+        }
+    }
+
     public static void main( String[] args) {
         try{        
+            SolverOptions Options = new SolverOptions(args, "complete", "max_resolvent", "local", "merge_together", "symmetry", "amo", "presolve", "workers", "noise", "max_tries", "restart", "pick", "race", "preprocess", "timeout");
+            args = Options.Positional;
             if (args.length != 4)
             {
-                System.out.println("Incorrect command.");
-                System.out.println("Usage :java SATSolver <input_file> <output_file> <p> <max_flips>");
+                printIncorrectArguments();
                 return;
             }
 
             FileIO IOHandle = new FileIO(args[0]);
             double p = Double.parseDouble(args[2]);
             int max_flips = Integer.parseInt(args[3]);
+            String complete = Options.getChoice("complete", "cdcl", "resolution", "cube", "cp");
+            int max_resolvent = Options.getInt("max_resolvent", Integer.MAX_VALUE);
+            String local = Options.getChoice("local", "walksat", "chemical", "paws");
+            boolean merge = Options.getChoice("merge_together", "on", "off").equals("on");
+            boolean symmetry = Options.getChoice("symmetry", "off", "on").equals("on");
+            String encoding = Options.getChoice("amo", CardinalityEncoder.ENCODINGS);
+            boolean presolve = Options.getChoice("presolve", "on", "off").equals("on");
+            int workers = Options.getInt("workers", 1);
+            boolean adaptive = Options.getChoice("noise", "fixed", "adaptive").equals("adaptive");
+            int max_tries = Options.getInt("max_tries", 1);
+            String restart = Options.getChoice("restart", RestartPolicy.POLICIES);
+            String pick = Options.getChoice("pick", PickStrategy.NAMES);
+            boolean race = Options.getChoice("race", "off", "on").equals("on");
+            String passes[] = Preprocessor.parse(Options.getString("preprocess", "none"));
+            double timeout = Options.getDouble("timeout", 0);
+            if (max_tries < 1)
+                throw new IllegalArgumentException("Incorrect value for -max_tries: " + max_tries);
+            if (timeout < 0)
+                throw new IllegalArgumentException("Incorrect value for -timeout: " + timeout);
+            Deadline Limit = timeout > 0 ? new Deadline((long)(timeout * 1000)) : null;
 
-            ConstraintSolver ConstraintSolver1 = IOHandle.readTextFile();
-            if (ConstraintSolver1 == null){
+            ChemicalGraph Graph = IOHandle.readGraph();
+            if (Graph == null){
                 System.out.println("Input file format incorrect.");
                 return;
             }
+            
+            int Group[] = null;
+            if (merge){
+                TogetherGroups Groups = new TogetherGroups(Graph);
+                if (Groups.Conflict != null){
+                    System.out.println("Chemicals " + Groups.Conflict[0] + " and " + Groups.Conflict[1] + " must be separate but are linked by together constraints");
+                    System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                    IOHandle.FilePath = args[1];
+                    writeNoSolution(IOHandle);
+                    return;
+                }
+                System.out.println("Merged " + Graph.num_chemicals + " chemicals into " + Groups.num_groups + " together groups");
+                Group = Groups.Group;
+                Graph = Groups.reduce(Graph);
+            }
+            
+            if (presolve){
+                GraphPresolve Presolve = new GraphPresolve(Graph);
+                int status = Presolve.solve();
+                if (status == GraphPresolve.UNSATISFIABLE){
+                    if (Presolve.Clique.length > Graph.num_containers)
+                        System.out.println("Presolve: found " + Presolve.Clique.length + " pairwise separate chemicals for " + Graph.num_containers + " containers");
+                    System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                    IOHandle.FilePath = args[1];
+                    writeNoSolution(IOHandle);
+                    return;
+                }
+                if (status == GraphPresolve.SATISFIABLE){
+                    System.out.println("Presolve: DSATUR colouring uses " + Presolve.num_colors + " containers");
+                    System.out.println("The Satisfiablity problem can be solved with the given values");
+                    IOHandle.FilePath = args[1];
+                    ConstraintSolver PresolveModel = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers);
+                    PresolveModel.setModel(Presolve.containerOf);
+                    writeSolution(IOHandle, PresolveModel.Model, Group, Graph.num_containers);
+                    return;
+                }
+                System.out.println("Presolve: largest clique found has " + Presolve.Clique.length + " chemicals, DSATUR needs more than " + Graph.num_containers + " containers");
+            }
+            
+            if (complete.equals("cp")){
+                if (CPSolver.isApplicable(Graph)){
+                    IOHandle.FilePath = args[1];
+                    CPSolver Solver = new CPSolver(Graph);
+                    if (Limit != null){
+                        Solver.Stop = new AtomicBoolean();
+                        Limit.watch(Solver.Stop);
+                    }
+                    boolean satisfiable = Solver.solve();
+                    System.out.println("CP search: " + Solver.nodes + " nodes, " + Solver.failures + " failures");
+                    if (!satisfiable && Limit != null && Limit.expired()){
+                        System.out.println("The time limit was reached before the Satisfiablity problem was decided");
+                        writeUnknown(IOHandle, null, Group, Graph.num_containers);
+                    }
+                    else if (satisfiable){
+                        System.out.println("The Satisfiablity problem can be solved with the given values");
+                        ConstraintSolver CPModel = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers);
+                        CPModel.setModel(Solver.containerOf);
+                        writeSolution(IOHandle, CPModel.Model, Group, Graph.num_containers);
+                    }
+                    else {
+                        System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                        writeNoSolution(IOHandle);
+                    }
+                    return;
+                }
+                System.out.println("The CP engine handles at most " + CPSolver.MAX_CONTAINERS + " containers, using CDCL");
+                complete = "cdcl";
+            }
+            
+            GraphComponents Components = new GraphComponents(Graph);
+            ComponentTask Tasks[] = new ComponentTask[Components.num_components];
+            Cancellation Failed = new Cancellation();
+            ConstraintSolver ConstraintSolver1;
+            if (Components.num_components > 1)
+                System.out.println("The constraint graph splits into " + Components.num_components + " components");
             System.out.println("Knowledge Base:");
-            IOHandle.printKB(ConstraintSolver1.KB);
+            for (int k = 0; k < Components.num_components; k++){
+                ConstraintSolver1 = new ConstraintSolver(Components.Members[k].length, Graph.num_containers, encoding);
+                ConstraintSolver1.addConstraints(Components.Subgraphs[k]);
+                ConstraintSolver1.adaptive = adaptive;
+                ConstraintSolver1.max_tries = max_tries;
+                ConstraintSolver1.restart = restart;
+                ConstraintSolver1.pick = pick;
+                if (Limit != null)
+                    ConstraintSolver1.setDeadline(Limit);
+                ConstraintSolver1.setCancellation(Failed);
+                if (symmetry)
+                    ConstraintSolver1.addSymmetryBreakingConstraint(Components.Subgraphs[k].symmetryOrder());
+                IOHandle.printKB(ConstraintSolver1.KB, Components.Members[k], ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers);
+                Tasks[k] = new ComponentTask(ConstraintSolver1, Components.Subgraphs[k], complete, local, max_resolvent, p, max_flips, workers, symmetry, race, passes, Failed);
+            }
             IOHandle.FilePath = args[1];
             
-            if (!ConstraintSolver1.PLSatisfiability(ConstraintSolver1.KB))
-            {
-                System.out.println("The Satisfiablity problem cannot be solved with the given values");
-                if (!IOHandle.writeSolutionToFile(null, 0, 0)){
-                    System.out.println("Error writing to file");
-                    IOHandle.printSolution(null, 0, 0);
+            /* Smallest components first, so that a small unsatisfiable one cancels the rest even when the pool has a single worker */
+            Integer Order[] = new Integer[Components.num_components];
+            for (int k = 0; k < Components.num_components; k++)
+                Order[k] = k;
+            Arrays.sort(Order, Comparator.comparingInt(k -> Components.Members[k].length));
+            ForkJoinPool Pool = ForkJoinPool.commonPool();
+            for (int k : Order)
+                Pool.execute(Tasks[k]);
+            for (ComponentTask Task : Tasks)
+                Task.join();
+            
+            BitSet Model[] = new BitSet[Graph.num_chemicals];
+            boolean unsatisfiable = false, unknown = false;
+            for (int k = 0; k < Components.num_components; k++){
+                for (String line : Tasks[k].Log.toString().split("\n")){
+                    if (!line.isEmpty())
+                        System.out.println((Components.num_components > 1 ? "Component " + k + ": " : "") + line);
                 }
-                    
+                unsatisfiable |= Tasks[k].status == ComponentTask.UNSATISFIABLE;
+                unknown |= Tasks[k].status == ComponentTask.UNKNOWN;
+                for (int i = 0; i < Components.Members[k].length; i++)
+                    Model[Components.Members[k][i]] = Tasks[k].Solver.Model[i];
             }
-            else
-            {
-                System.out.println("The Satisfiablity problem can be solved with the given values");
-                if (ConstraintSolver1.WalkSat(ConstraintSolver1.KB, p, max_flips)){
-                    if (!IOHandle.writeSolutionToFile(ConstraintSolver1.Model, ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers)){
-                        System.out.println("Error writing to file");
-                        IOHandle.printSolution(ConstraintSolver1.Model, ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers);
-                    }
+            
+            if (unsatisfiable){
+                System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                writeNoSolution(IOHandle);
+            }
+            else if (Failed.cancelled())
+                writeNoSolution(IOHandle);
+            else if (unknown){
+                if (Limit != null && Limit.expired())
+                    System.out.println("The time limit was reached before the Satisfiablity problem was decided");
+                else
+                    System.out.println("The Satisfiablity problem could not be decided");
+                writeUnknown(IOHandle, Model, Group, Graph.num_containers);
+            }
+            else {
+                int violated = 0;
+                for (int k = 0; k < Components.num_components; k++)
+                    violated += Tasks[k].Solver.checkModel(Components.Subgraphs[k]);
+                if (violated > 0){
+                    System.out.println("Internal error: the model found breaks " + violated + " constraints or clauses");
+                    writeError(IOHandle);
                 }
                 else {
-                    System.out.println("WalkSAT failed to find a solution");
-                    if (!IOHandle.writeSolutionToFile(null, 0, 0)){
-                        System.out.println("Error writing to file");
-                        IOHandle.printSolution(null, 0, 0);                        
-                    }
+                    System.out.println("The Satisfiablity problem can be solved with the given values");
+                    writeSolution(IOHandle, Model, Group, Graph.num_containers);
                 }
-                
-                    
             }
 
         }
-        catch(NumberFormatException e){
-            System.out.println("Incorrect command.");
-            System.out.println("Usage :java SATSolver <input_file> <output_file> <p> <max_flips>");
+        catch(IllegalArgumentException e){
+            printIncorrectArguments();
         }
             
     }
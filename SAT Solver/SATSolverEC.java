@@ -5,345 +5,228 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.BitSet;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
 import java.util.Random;
-import java.util.Set;
-
-class Literal{
-    public int chemical;
-    public int container;    
-    
-    Literal (int chemical, int container){
-        this.chemical = chemical;
-        this.container = container;        
-    }
-    
-  
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final Literal other = (Literal) obj;
-        if (this.chemical != other.chemical) {
-            return false;
-        }
-        return this.container == other.container;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 7;
-        hash = 89 * hash + this.chemical;
-        hash = 89 * hash + this.container;
-        return hash;
-    }
-}
-
-class ClauseLiteral{
-    public Literal literal;
-    public boolean isNegated;
-    
-    ClauseLiteral (Literal literal, boolean isNegated){
-        this.literal = literal;
-        this.isNegated = isNegated;        
-    }
-    
-
-    public boolean isNegation(ClauseLiteral other){
-        return this.literal.equals(other.literal) && this.isNegated != other.isNegated;
-    }
-    
-    public ClauseLiteral getNegation(){
-        ClauseLiteral Negation = new ClauseLiteral(this.literal, !this.isNegated);
-        return Negation;        
-    }
-    
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final ClauseLiteral other = (ClauseLiteral) obj;
-        if (!Objects.equals(this.literal, other.literal)) {
-            return false;
-        }
-        return this.isNegated == other.isNegated;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 5;
-        hash = 67 * hash + Objects.hashCode(this.literal);
-        hash = 67 * hash + (this.isNegated ? 1 : 0);
-        return hash;
-    }
-    
-}
-
-class CNFClause{
-    
-    public Set<ClauseLiteral> Literals;
-    
-    CNFClause(){
-        Literals = new HashSet<>();
-    }
-
-    public void addLiteral(ClauseLiteral lit){        
-        Literals.add(lit);        
-    }
-
-    public void addLiterals(Set<ClauseLiteral> lits){        
-        Literals.addAll(lits);        
-    }
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final CNFClause other = (CNFClause) obj;
-
-        return Objects.equals(this.Literals, other.Literals);
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 3;
-        hash = 29 * hash + Objects.hashCode(this.Literals);
-        return hash;
-    }
-
-    
-}
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
 
 
 class ConstraintSolver{
     public int num_chemicals;
     public int num_containers;
-    public Set<CNFClause> KB;
-    public ClauseLiteral PositiveLiterals[][];
-    public ClauseLiteral NegatedLiterals[][];
+    public ClauseStore KB;
+    public int PositiveLiterals[][];
+    public int NegatedLiterals[][];
     public BitSet Model[];
     public Random randomGenerator;
-    public Set<CNFClause> FalseClauses;
+    public boolean CDCLModel[];
+    public boolean ResolutionTruncated;
+    /* Result of the last PLSatisfiability run, see ResolutionProver.prove. */
+    public int ResolutionStatus;
+    public String encoding;
+    /* WalkSat tunes its noise on the fly when set, see LocalSearch. */
+    public boolean adaptive;
+    /* Name of the PickStrategy of WalkSat's flips. */
+    public String pick;
+    /* Polled by every engine when set, so that another thread can cancel it. */
+    public AtomicBoolean Stop;
+    /* Wall-clock bound of every engine, see setDeadline. */
+    public Deadline Limit;
+    /* Clauses false under Model after a local search without a model; violated edges for ChemicalSearch. */
+    public int best_unsat;
+    /* Number of WalkSat tries and how their flip budgets grow, see RestartPolicy. */
+    public int max_tries;
+    public String restart;
+    /* Set by preprocess(); setModel(boolean[]) then extends assignments of the reduced KB. */
+    public Preprocessor Simplifier;
+    /* KB as encoded, before any Preprocessor pass, and the full assignment behind Model when there is one. */
+    public ClauseStore Encoded;
+    public boolean Solution[];
     
     
     ConstraintSolver(int num_chemicals, int num_containers){
+        this(num_chemicals, num_containers, CardinalityEncoder.AUTO);
+    }
+    
+    /* encoding names the at-most-one encoding of addExactlyOneConstraint, see CardinalityEncoder. */
+    ConstraintSolver(int num_chemicals, int num_containers, String encoding){
         this.num_chemicals = num_chemicals;
         this.num_containers = num_containers;
-        PositiveLiterals = new ClauseLiteral[num_chemicals][num_containers];
-        NegatedLiterals = new ClauseLiteral[num_chemicals][num_containers];
+        this.encoding = encoding;
+        PositiveLiterals = new int[num_chemicals][num_containers];
+        NegatedLiterals = new int[num_chemicals][num_containers];
         Model = new BitSet[num_chemicals];
-        Literal literal;
+        int variable;
         for (int i = 0; i < num_chemicals; i++){            
             for (int j = 0; j < num_containers; j++){
-                literal = new Literal(i, j);
-                PositiveLiterals[i][j] = new ClauseLiteral(literal, false);
-                NegatedLiterals[i][j] = new ClauseLiteral(literal, true);
+                variable = i * num_containers + j;
+                PositiveLiterals[i][j] = ClauseStore.literal(variable, false);
+                NegatedLiterals[i][j] = ClauseStore.literal(variable, true);
             }
         }
         
         for (int i = 0; i < num_chemicals; i++){
             Model[i] = new BitSet(num_containers);
         }
-        KB = new HashSet<>();
-        FalseClauses = new HashSet<>();
+        KB = new ClauseStore(num_chemicals * num_containers);
         randomGenerator = new Random();
+        max_tries = 1;
+        pick = PickStrategy.WALKSAT;
+        restart = RestartPolicy.FIXED;
     }
 
     
         
     void addExactlyOneConstraint(){
         
-        CNFClause AtLeastOneClause, AtMostOneClause;
-        for (int i = 0; i < num_chemicals; i++){                        
-            AtMostOneClause = new CNFClause();
-            for (int j = 0; j < num_containers; j++){
-
-                AtMostOneClause.addLiteral(PositiveLiterals[i][j]);                
-                
-                for (int k = j + 1; k < num_containers; k++){
-                    AtLeastOneClause = new CNFClause();
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][j]);
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][k]);                    
-                    KB.add(AtLeastOneClause);
-                }
-            }
-            
-            KB.add(AtMostOneClause);
-        }            
+        for (int i = 0; i < num_chemicals; i++){
+            CardinalityEncoder.addExactlyOne(KB, PositiveLiterals[i], num_containers, encoding);
+        }
         
     }
     
+    void addSymmetryBreakingConstraint(int[] Order){
+        int chemical;
+        for (int i = 0; i + 1 < num_containers && i < num_chemicals; i++){
+            chemical = Order == null ? i : Order[i];
+            for (int j = i + 1; j < num_containers; j++){
+                KB.addClause(NegatedLiterals[chemical][j]);
+            }
+        }
+    }
+    
     void addSeparateConstraint(int chemical1, int chemical2){
-        CNFClause SeparateClause;
         for (int i = 0; i < num_containers; i++){
-            SeparateClause = new CNFClause();
-            SeparateClause.addLiteral(NegatedLiterals[chemical1][i]);
-            SeparateClause.addLiteral(NegatedLiterals[chemical2][i]);
-            KB.add(SeparateClause);
+            KB.addClause(NegatedLiterals[chemical1][i], NegatedLiterals[chemical2][i]);
         }        
     }
     
     void addTogetherConstraint(int chemical1, int chemical2){
-        CNFClause TogetherClause;
         for (int j = 0; j < num_containers; j++){
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(NegatedLiterals[chemical1][j]);
-            TogetherClause.addLiteral(PositiveLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
-            
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(PositiveLiterals[chemical1][j]);
-            TogetherClause.addLiteral(NegatedLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
+            KB.addClause(NegatedLiterals[chemical1][j], PositiveLiterals[chemical2][j]);
+            KB.addClause(PositiveLiterals[chemical1][j], NegatedLiterals[chemical2][j]);
         }
     }
     
-    void getKClauses(int container, Set<CNFClause> KClauses, int start, int k, CNFClause KClause){
-
-        CNFClause K1Clause;
-        if (KClause == null)
-            KClause = new CNFClause();
-        
-        for (int i = start; i < num_chemicals; i++){            
-            K1Clause = new CNFClause();
-            K1Clause.addLiterals(KClause.Literals);
-            K1Clause.addLiteral(NegatedLiterals[i][container]);
-            
-            if (k == 1)
-            {   
-                KClauses.add(K1Clause);                
-                return;
-            }
-            else {                
-                for (int j = i+1; j + k - 1 <= num_chemicals; j++){
-                    getKClauses(container, KClauses, j, k-1, K1Clause);
-                }
-
-            }
-        }
-
-        
+    void addAtMostKConstraint(int k){
+        addAtMostKConstraint(k, CardinalityEncoder.AUTO);
     }
     
-    void addAtMostKConstraint(int k){
+    /* At most k chemicals per container, in one of CardinalityEncoder.AT_MOST_K_ENCODINGS. */
+    void addAtMostKConstraint(int k, String capacity_encoding){
         
         if (k >= num_chemicals)
             return;
-        Set<CNFClause> KClauses;
+        int Column[] = new int[num_chemicals];
         
-        for (int i = 0; i < num_containers; i ++){
-            KClauses = new HashSet<>();
-            getKClauses(i, KClauses, 0, k + 1, null);
-            KB.addAll(KClauses);
+        for (int j = 0; j < num_containers; j ++){
+            for (int i = 0; i < num_chemicals; i++){
+                Column[i] = PositiveLiterals[i][j];
+            }
+            CardinalityEncoder.addAtMostK(KB, Column, num_chemicals, k, capacity_encoding);
         }
     }
     
-        boolean containsSubset(Set<CNFClause> KB1, CNFClause C1){
-        int size = C1.Literals.size();
-        CNFClause C2 = new CNFClause();
-        ClauseLiteral lit[] = C1.Literals.toArray(new ClauseLiteral[0]);
-        long j;
-        int bit;
-        for (long i = 0; i < Math.pow(2, size); i++){
-            j = i;
-            bit = 0;
-            while (j!=0){
-                if ((j & 1) == 1){
-                    C2.addLiteral(lit[bit]);                    
-                }
-                j = j>>1;
-                bit++;
-            }
-            if (KB1.contains(C2))
-                return true;
-            C2.Literals.clear();
-        }
-        return false;
+    void addConstraints(ChemicalGraph Graph, String capacity_encoding){
+        addExactlyOneConstraint();
+        addAtMostKConstraint(Graph.capacity, capacity_encoding);
+        for (int e = 0; e < Graph.num_together; e++)
+            addTogetherConstraint(Graph.Together[2 * e], Graph.Together[2 * e + 1]);
+        for (int e = 0; e < Graph.num_separate; e++)
+            addSeparateConstraint(Graph.Separate[2 * e], Graph.Separate[2 * e + 1]);
     }
     
-    Set<CNFClause> PLResolve(Set<CNFClause> KB1, CNFClause C1, CNFClause C2){
-        Set<CNFClause> Resolvents = new HashSet<>();
-        CNFClause clause = new CNFClause();
-        ClauseLiteral ResolvingLiteral = null;        
-        
-        int count = 0;
-        for (ClauseLiteral lit1 : C1.Literals){
-            for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit1.equals(lit2) && lit1.isNegation(lit2)){
-                    if (count == 0)
-                      ResolvingLiteral = lit1;
-                    else
-                       return Resolvents;
-                    count++;
-                }                    
-            }
-        }
-        
-        if (ResolvingLiteral == null)
-            return Resolvents;
-        
-        for (ClauseLiteral lit1 : C1.Literals){
-                if(!lit1.equals(ResolvingLiteral) && !lit1.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit1);
-        }
-
-        for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit2.equals(ResolvingLiteral) && !lit2.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit2);
-        }
-        
-        if(clause.Literals.isEmpty())
-            return null;
+    /*
+     * Replaces KB by its simplification under the given Preprocessor passes.
+     * Returns false when they refute it.
+     */
+    boolean preprocess(String[] passes){
+        Encoded = KB;
+        Simplifier = new Preprocessor(KB, passes);
+        Simplifier.Stop = Stop;
+        boolean satisfiable = Simplifier.run();
+        KB = Simplifier.reduced();
+        return satisfiable;
+    }
     
-        else if (containsSubset(KB1, clause))
-            return Resolvents;
-        
-        Resolvents.add(clause);        
-        return Resolvents;
+    int PLSatisfiability(ClauseStore KB1){
+        return PLSatisfiability(KB1, Integer.MAX_VALUE);
     }
     
-    boolean PLSatisfiability(Set<CNFClause> KB1){
-        Set<CNFClause> Resolvents;
-        Set<CNFClause> KBCopy = new HashSet<>(KB1);
-        Set<CNFClause> New = new HashSet<>();
-        Set<CNFClause> NewCopy = new HashSet<>(KB1);
-        int size;
-        
-        while (true){
-            for(CNFClause C1 : KBCopy){
-                for(CNFClause C2 : NewCopy){
-                    
-                    Resolvents = PLResolve(KB1, C1, C2);
-                    if (Resolvents == null)
-                        return false;
-                    
-                    New.addAll(Resolvents);
-                }
-                NewCopy.addAll(New);
-            }
-            
-            size = KBCopy.size();
-            KBCopy.addAll(New);   
-            
-            if (size == KBCopy.size())
-                return true;
-        }
+    /*
+     * Saturates KB1 by resolution, keeping resolvents of at most max_length
+     * literals. Returns ResolutionProver.REFUTED, SATURATED or TRUNCATED; only
+     * SATURATED proves KB1 satisfiable.
+     */
+    int PLSatisfiability(ClauseStore KB1, int max_length){
+        ResolutionProver Prover = new ResolutionProver(KB1, max_length);
+        Prover.Stop = Stop;
+        ResolutionStatus = Prover.prove();
+        ResolutionTruncated = ResolutionStatus != ResolutionProver.REFUTED && Prover.truncated;
+        return ResolutionStatus;
+    }
+    
+    /* Returns CDCLSolver.SATISFIABLE, with CDCLModel set, UNSATISFIABLE or STOPPED. */
+    int CDCLSatisfiability(ClauseStore KB1){
+        CDCLSolver Solver = new CDCLSolver(KB1);
+        Solver.Stop = Stop;
+        int result = Solver.decide();
+        if (result == CDCLSolver.SATISFIABLE)
+            CDCLModel = Solver.Model;
+        return result;
+    }
+    
+    /*
+     * CDCL on cubes of Graph's chemicals in parallel, see CubeAndConquer.
+     * interchangeable is false once symmetry-breaking clauses are in KB1.
+     */
+    int CubeSatisfiability(ClauseStore KB1, ChemicalGraph Graph, boolean interchangeable){
+        CubeAndConquer Solver = new CubeAndConquer(KB1, Graph, interchangeable);
+        if (Stop != null)
+            Solver.Stop = Stop;
+        int result = Solver.decide();
+        if (result == CDCLSolver.SATISFIABLE)
+            CDCLModel = Solver.Model;
+        return result;
+    }
+    
+    boolean TwoSatSatisfiability(ClauseStore KB1){
+        TwoSatSolver Solver = new TwoSatSolver(KB1);
+        if (!Solver.solve())
+            return false;
+        setModel(Solver.Model);
+        return true;
+    }
+    
+    /* True once Stop is set, except for the first try, which always runs so that Model is set. */
+    private boolean isStopped(int attempt){
+        return attempt > 0 && Stop != null && Stop.get();
+    }
+    
+    /*
+     * Bounds every engine by Limit: Stop, created if there is none, is set
+     * once Limit expires. A complete engine stopped this way answers
+     * CDCLSolver.STOPPED rather than a refutation, and stopped() holds.
+     */
+    void setDeadline(Deadline Limit){
+        this.Limit = Limit;
+        setStop(Stop == null ? new AtomicBoolean() : Stop);
+    }
+    
+    /* Replaces Stop, keeping the new flag under Limit when there is one. */
+    void setStop(AtomicBoolean Flag){
+        Stop = Flag;
+        if (Limit != null && Flag != null)
+            Limit.watch(Flag);
+    }
+    
+    /* True once Stop is set, whether by Limit or by a race. */
+    boolean stopped(){
+        return Stop != null && Stop.get();
+    }
+    
+    boolean timedOut(){
+        return Limit != null && Limit.expired();
     }
     
     int getRandomNumber(int start, int end){
@@ -351,124 +234,200 @@ class ConstraintSolver{
         return random;
     }
     
-    boolean doRandom(double p){
-        return randomGenerator.nextDouble() <= p;
+    void setModel(int[] containerOf){
+        Solution = null;
+        for (int i = 0; i < num_chemicals; i++){
+            Model[i].clear();
+            Model[i].set(containerOf[i]);
+        }
     }
     
-    void getAllFalseClauses(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses){        
-        int chemical, container;
-        boolean isNegated, value, satisfied;
-
-        for (CNFClause Clause : KB1){
-            satisfied = false;
-            for (ClauseLiteral Literal : Clause.Literals){
-                chemical = Literal.literal.chemical;
-                container = Literal.literal.container;
-                isNegated = Literal.isNegated;
-                value = Model[chemical].get(container);
-                if (value == !isNegated){
-                    satisfied = true;
-                    break;
-                }                    
+    void setModel(boolean[] Assignment){
+        if (Simplifier != null)
+            Assignment = Simplifier.extend(Assignment);
+        Solution = Assignment;
+        for (int i = 0; i < num_chemicals; i++){
+            for (int j = 0; j < num_containers; j++){
+                Model[i].set(j, Assignment[i * num_containers + j]);
             }
-            if (!satisfied)
-                FalseClauses.add(Clause);
-            
         }
     }
-    CNFClause getRandomFalseClause(Set<CNFClause> KB1, Set<CNFClause> FalseClauses){
-        
-        int random;
-        int i = 0;
-
-        random = getRandomNumber(0, FalseClauses.size() - 1);
-        for (CNFClause Clause : FalseClauses){
-            if (i == random)
-               return Clause;            
-            i++;
+    
+    /*
+     * Number of constraints of Graph that Model breaks, checked on the
+     * placements alone so that no encoding is trusted: every chemical in
+     * exactly one container, no container over capacity, a together pair in
+     * the same container and a separate pair in different ones. When Model
+     * came from an assignment,
+     * the clauses of the encoded KB that it leaves false are counted too,
+     * which also checks the Preprocessor's model reconstruction.
+     */
+    int checkModel(ChemicalGraph Graph){
+        int violated = 0;
+        for (int i = 0; i < num_chemicals; i++){
+            if (Model[i].cardinality() != 1)
+                violated++;
         }
-        return null;
-
-    }
-    ClauseLiteral getRandomLiteral(CNFClause Clause){        
-
-        int random = getRandomNumber(0, Clause.Literals.size() - 1);
-        int i = 0;
-        ClauseLiteral RandomLiteral = null;
-                
-        for (ClauseLiteral literal : Clause.Literals){
-            if (i == random){
-                RandomLiteral = literal;
-                break;
-            }                
-            i++;
+        int Load[] = new int[num_containers];
+        for (int i = 0; i < num_chemicals; i++){
+            for (int j = Model[i].nextSetBit(0); j >= 0 && j < num_containers; j = Model[i].nextSetBit(j + 1))
+                Load[j]++;
         }
-        
-        return RandomLiteral;
+        for (int j = 0; j < num_containers; j++){
+            if (Load[j] > Graph.capacity)
+                violated++;
+        }
+        for (int e = 0; e < Graph.num_together; e++){
+            if (!Model[Graph.Together[2 * e]].equals(Model[Graph.Together[2 * e + 1]]))
+                violated++;
+        }
+        for (int e = 0; e < Graph.num_separate; e++){
+            if (Model[Graph.Separate[2 * e]].intersects(Model[Graph.Separate[2 * e + 1]]))
+                violated++;
+        }
+        if (Solution != null)
+            violated += ClauseEvaluator.create(Encoded != null ? Encoded : KB).countFalse(Solution);
+        return violated;
     }
     
-    ClauseLiteral getMaximizingLiteral(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses, CNFClause Clause){
-        int max = 0;
-        ClauseLiteral MaxLiteral = null;
-        int refcount;
-        int chemical, container;
+   
+    /*
+     * Up to max_tries walks from fresh random assignments, try t allowed
+     * RestartPolicy.cutoff(restart, max_flips, t) flips. When none finds a
+     * model, Model is the assignment with the fewest unsatisfied clauses
+     * seen in any try, best_unsat of them.
+     */
+    boolean WalkSat(ClauseStore KB1, double p, int max_flips){
         
-        for (ClauseLiteral clauseliteral : Clause.Literals){
-            chemical = clauseliteral.literal.chemical;
-            container = clauseliteral.literal.container;
-            refcount = 0;
-            for (CNFClause FalseClause : FalseClauses){
-                if (FalseClause.Literals.contains(clauseliteral))
-                    refcount++;
+        int random, cutoff;
+        boolean Assignment[] = new boolean[KB1.num_variables];
+        boolean Best[] = null;
+        LocalSearch Search = new LocalSearch(KB1, randomGenerator);
+        Search.adaptive = adaptive;
+        Search.Strategy = PickStrategy.forName(pick);
+        Search.Stop = Stop;
+        best_unsat = Integer.MAX_VALUE;
+
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            for (int i = 0; i < num_chemicals; i++){
+                random = getRandomNumber(0, num_containers - 1);
+                Model[i].clear();
+                Model[i].set(random);
+                for (int j = 0; j < num_containers; j++){
+                    Assignment[i * num_containers + j] = Model[i].get(j);
+                }
             }
             
-            if (refcount > max){
-                max = refcount;
-                MaxLiteral = clauseliteral;
+            Search.initialize(Assignment);
+            cutoff = RestartPolicy.cutoff(restart, max_flips, t);
+            if (Search.solve(p, cutoff)){
+                setModel(Search.Assignment);
+                return true;
             }
-                
-        }            
-        return MaxLiteral;
+            if (Search.best_unsat < best_unsat){
+                best_unsat = Search.best_unsat;
+                Best = Search.Best.clone();
+            }
+        }
+        setModel(Best);
+        return false;
     }
     
-   
-    boolean WalkSat(Set<CNFClause> KB1, double p, int max_flips){
+    /*
+     * WalkSat on num_workers threads, see WalkSatPortfolio. Each worker has
+     * its own seed and random start; worker 0 keeps p and the others spread
+     * their noise over p/2 to 3p/2. One worker is plain WalkSat.
+     */
+    boolean WalkSat(ClauseStore KB1, double p, int max_flips, int num_workers){
+        if (num_workers <= 1)
+            return WalkSat(KB1, p, max_flips);
         
-        int random, chemical, container;
-        ClauseLiteral flipLiteral;
-        CNFClause RandomClause;
-
-        for (int i = 0; i < num_chemicals; i++){
-            random = getRandomNumber(0, num_containers - 1);
-            Model[i].set(random);
+        WalkSatPortfolio Portfolio = new WalkSatPortfolio(KB1);
+        if (Stop != null)
+            Portfolio.Stop = Stop;
+        Random Worker;
+        LocalSearch Search;
+        boolean Start[];
+        for (int w = 0; w < num_workers; w++){
+            Worker = new Random(randomGenerator.nextLong());
+            Start = new boolean[KB1.num_variables];
+            for (int i = 0; i < num_chemicals; i++)
+                Start[i * num_containers + Worker.nextInt(num_containers)] = true;
+            Search = new LocalSearch(KB1, Worker);
+            Search.adaptive = adaptive;
+            Search.Strategy = PickStrategy.forName(pick);
+            Portfolio.addWorker(Search, Start, w == 0 ? p : Math.min(1.0, p * (0.5 + (double)w / num_workers)));
         }
+        boolean satisfied = Portfolio.solve(max_flips);
+        best_unsat = Portfolio.best_unsat;
+        setModel(Portfolio.Assignment);
+        return satisfied;
+    }
+    
+    /*
+     * Clause-weighting local search (PAWS) on KB1, see ClauseWeightingSearch,
+     * with the tries and flip budgets of WalkSat. The weights start afresh
+     * with every try.
+     */
+    boolean ClauseWeighting(ClauseStore KB1, int max_flips){
         
-        for (int i = 0; i < max_flips; i++){
-            
-            FalseClauses.clear();
-            getAllFalseClauses(KB1, Model, FalseClauses);
-            
-            if (FalseClauses.isEmpty())
-                return true;           
-            
-            
-            RandomClause = getRandomFalseClause(KB1, FalseClauses);
-            if (doRandom(p))
-                flipLiteral = getRandomLiteral(RandomClause);
-            else 
-                flipLiteral = getMaximizingLiteral(KB1, Model, FalseClauses, RandomClause);
-
-                        
-            chemical = flipLiteral.literal.chemical;
-            container = flipLiteral.literal.container;                 
+        int random;
+        boolean Assignment[] = new boolean[KB1.num_variables];
+        boolean Best[] = null;
+        ClauseWeightingSearch Search = new ClauseWeightingSearch(KB1, randomGenerator);
+        Search.Stop = Stop;
+        best_unsat = Integer.MAX_VALUE;
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            for (int i = 0; i < num_chemicals; i++){
+                random = getRandomNumber(0, num_containers - 1);
+                for (int j = 0; j < num_containers; j++)
+                    Assignment[i * num_containers + j] = j == random;
+            }
             
-            if (Model[chemical].get(container)){
-                Model[chemical].clear(container);
+            Search.initialize(Assignment);
+            if (Search.solve(RestartPolicy.cutoff(restart, max_flips, t))){
+                setModel(Search.Assignment);
+                return true;
+            }
+            if (Search.best_unsat < best_unsat){
+                best_unsat = Search.best_unsat;
+                Best = Search.Best.clone();
             }
-            else {
-                Model[chemical].set(container);
-            }                
         }
+        setModel(Best);
+        return false;
+    }
+    
+    /*
+     * Local search over whole chemicals that keeps every container within
+     * capacity, entering full containers by swaps. p, max_flips and the tries
+     * mean what they mean for WalkSat. Fails at once when the chemicals
+     * cannot fit.
+     */
+    boolean ChemicalSearch(ChemicalGraph Graph, double p, int max_flips){
+        
+        AssignmentSearch Search = new AssignmentSearch(Graph, randomGenerator);
+        Search.Stop = Stop;
+        int Start[] = Search.getRandomAssignment();
+        if (Start == null)
+            return false;
+        
+        int Best[] = null;
+        best_unsat = Integer.MAX_VALUE;
+        for (int t = 0; t < max_tries && !isStopped(t); t++){
+            if (t > 0)
+                Start = Search.getRandomAssignment();
+            Search.initialize(Start);
+            if (Search.solve(p, RestartPolicy.cutoff(restart, max_flips, t))){
+                setModel(Search.containerOf);
+                return true;
+            }
+            if (Search.best_violated < best_unsat){
+                best_unsat = Search.best_violated;
+                Best = Search.BestContainerOf.clone();
+            }
+        }
+        setModel(Best);
         return false;
     }
     
@@ -482,9 +441,10 @@ class FileIO{
         FilePath = p;
     }
     
-    ConstraintSolver readTextFile() {
-        ConstraintSolver SATSolver = null;
-        int row = 0, num_chemicals = 0, num_containers, value, k;
+    /* The matrix with its header; the third header number is the container capacity. */
+    ChemicalGraph readGraph() {
+        ChemicalGraph Graph = null;
+        int row = 0, num_chemicals = 0, num_containers, value;
         try(FileReader inputFile = new FileReader(FilePath);
             BufferedReader bufRead = new BufferedReader(inputFile);){
             
@@ -499,28 +459,26 @@ class FileIO{
                         return null;
                     num_chemicals = Integer.parseInt(numbers[0]);
                     num_containers = Integer.parseInt(numbers[1]);
-                    k = Integer.parseInt(numbers[2]);
-                    SATSolver = new ConstraintSolver(num_chemicals, num_containers);
-                    SATSolver.addExactlyOneConstraint();
-                    SATSolver.addAtMostKConstraint(k);
+                    Graph = new ChemicalGraph(num_chemicals, num_containers);
+                    Graph.capacity = Integer.parseInt(numbers[2]);
                     
                 }
                 else {
                     for (int i = row; i < num_chemicals && i < numbers.length; i++) {
                         
-                        if(SATSolver == null)
+                        if(Graph == null)
                             return null;
                         
                         value = Integer.parseInt(numbers[i]);  
                         if(value == 1)
-                            SATSolver.addTogetherConstraint(row - 1, i);
+                            Graph.addTogether(row - 1, i);
                         else if (value == -1)
-                            SATSolver.addSeparateConstraint(row - 1, i);                        
+                            Graph.addSeparate(row - 1, i);                        
                     }                    
                 }
                 row++;
             }
-            return SATSolver;
+            return Graph;
         }
         catch(IOException | NumberFormatException e){
             return null;
@@ -542,17 +500,22 @@ class FileIO{
   }
   
    boolean writeSolutionToFile(BitSet[] Model, int num_chemicals, int num_containers){
-      
-      
+      return writeSolutionToFile(Model == null ? "0" : "1", Model, num_chemicals, num_containers);
+  }
+  
+  /*
+   * status is the first line written: 0 without a model, 1 with one,
+   * unknown when the search ended without an answer, followed by the best
+   * assignment found when Model is not null, or error when a model failed
+   * its final check.
+   */
+   boolean writeSolutionToFile(String status, BitSet[] Model, int num_chemicals, int num_containers){
       
       try (PrintWriter writer = new PrintWriter(FilePath, "UTF-8")) {
+            writer.println(status);
             if (Model == null)
-            {
-                writer.println("0");
                 return true;
-            }
             
-            writer.println("1");
             for (int i = 0; i < num_containers; i++) {
                 for (int j = 0; j < num_chemicals; j++) {
                     if (Model[j].get(i))
@@ -571,15 +534,16 @@ class FileIO{
       return true;
   }
   
-  void printSolution(BitSet[] Model, int num_chemicals, int num_containers){      
+  void printSolution(BitSet[] Model, int num_chemicals, int num_containers){
+      printSolution(Model == null ? "0" : "1", Model, num_chemicals, num_containers);
+  }
+  
+  void printSolution(String status, BitSet[] Model, int num_chemicals, int num_containers){      
       
+        System.out.println(status);
         if (Model == null)
-        {
-            System.out.println("0");
             return;
-        }
             
-        System.out.println("1");
         for (int i = 0; i < num_containers; i++) {
             for (int j = 0; j < num_chemicals; j++) {
                 if (Model[j].get(i))
@@ -592,27 +556,33 @@ class FileIO{
       }
       
   }
-  void printKB(Set<CNFClause> KB){
+  /*
+   * Auxiliary variables of the cardinality encodings are printed as Y0, Y1,
+   * ... after the num_chemicals * num_containers placement symbols.
+   */
+  void printKB(ClauseStore KB, int num_chemicals, int num_containers){
         
-            Set<ClauseLiteral> Literals;
-            Literal literal;
-            int ClauseCount = 0, LiteralCount;
+            int literal, variable;
+            int ClauseCount = 0;
+            String symbol;
             System.out.println();
-            for (CNFClause Clause : KB){
-                Literals = Clause.Literals;
+            for (int Clause = 0; Clause < KB.size(); Clause++){
                 System.out.print(ClauseCount + 1 + ") ");
-                LiteralCount = 0;
-                for (ClauseLiteral clauseliteral : Literals){
-                    if(clauseliteral.isNegated)
+                for (int i = KB.Start[Clause]; i < KB.Start[Clause + 1]; i++){
+                    literal = KB.Literals[i];
+                    if(ClauseStore.isNegated(literal))
                         System.out.print("~");
                     
-                    literal = clauseliteral.literal;
+                    variable = ClauseStore.variable(literal);
+                    if (variable >= num_chemicals * num_containers)
+                        symbol = "Y" + (variable - num_chemicals * num_containers);
+                    else
+                        symbol = "X" + variable / num_containers + "," + variable % num_containers;
                     
-                    if(LiteralCount != Literals.size() - 1)
-                        System.out.print("X" + literal.chemical + "," + literal.container + " V ");
+                    if(i != KB.Start[Clause + 1] - 1)
+                        System.out.print(symbol + " V ");
                     else
-                        System.out.print("X" + literal.chemical + "," + literal.container);
-                    LiteralCount++;
+                        System.out.print(symbol);
                 }
                 ClauseCount++;
                 System.out.println();    
@@ -624,59 +594,316 @@ class FileIO{
             
 public class SATSolverEC {
 
+    public static void printIncorrectArguments(){
+        System.out.println("Incorrect command.");
+        System.out.println("Usage :java SATSolverEC <input_file> <output_file> <p> <max_flips> [options]");
+        System.out.println("Options:");
+        System.out.println("  -complete cdcl|resolution|cube|cp");
+        System.out.println("                              complete engine; cdcl and cube return a model, resolution only");
+        System.out.println("                              decides and leaves the model to the local search,");
+        System.out.println("                              cube splits CDCL over container choices on every core,");
+        System.out.println("                              cp searches the matrix directly for up to 64 containers (default cdcl)");
+        System.out.println("  -max_resolvent <length>     longest resolvent kept by resolution (default unbounded)");
+        System.out.println("  -local walksat|chemical|paws");
+        System.out.println("                              local search over clause bits, chemical moves and swaps, or clause");
+        System.out.println("                              bits with PAWS clause weights, which ignores p (default walksat)");
+        System.out.println("  -symmetry on|off            rule out container relabellings (default off)");
+        System.out.println("  -amo auto|pairwise|sequential|commander|product");
+        System.out.println("                              at-most-one encoding of each chemical (default auto, chosen from M)");
+        System.out.println("  -capacity auto|binomial|sequential|totalizer|network");
+        System.out.println("                              at-most-k encoding of each container (default auto, chosen from N and k)");
+        System.out.println("  -presolve on|off            settle the instance by a separate clique or a DSATUR colouring");
+        System.out.println("                              before building clauses (default on)");
+        System.out.println("  -workers <count>            parallel WalkSat runs with their own seed and noise; the first");
+        System.out.println("                              model found stops the others (default 1)");
+        System.out.println("  -noise fixed|adaptive       keep WalkSat's noise at p, or start at p and raise it while the");
+        System.out.println("                              walk stagnates, lowering it after improvements (default fixed)");
+        System.out.println("  -max_tries <count>          local search tries from fresh random assignments (default 1)");
+        System.out.println("  -restart fixed|luby|geometric");
+        System.out.println("                              flip budget of each try: max_flips, or max_flips times the Luby");
+        System.out.println("                              sequence or 1.5^try (default fixed)");
+        System.out.println("  -pick walksat|novelty+|probsat-poly|probsat-exp|tabu");
+        System.out.println("                              literal WalkSat flips in a false clause (default walksat)");
+        System.out.println("  -race on|off                run the complete engine on its own thread alongside the local");
+        System.out.println("                              search and take whichever answers first (default off)");
+        System.out.println("  -preprocess none|all|<passes>");
+        System.out.println("                              simplify the KB before solving with a comma-separated list of");
+        System.out.println("                              units, subsume, equiv, probe and eliminate (default none)");
+        System.out.println("  -timeout <seconds>          stop every engine after this wall-clock time and write unknown");
+        System.out.println("                              with the best assignment found so far (default none)");
+        System.out.println("The final model check uses the incubating Vector API when VectorClauseEvaluator is built and");
+        System.out.println("the module is added:");
+        System.out.println("  javac --add-modules jdk.incubator.vector SATSolverEC.java VectorClauseEvaluator.java");
+        System.out.println("  java --add-modules jdk.incubator.vector SATSolverEC <input_file> <output_file> <p> <max_flips> [options]");
+    }
+
+    static void writeSolution(FileIO IOHandle, ConstraintSolver Solver){
+        if (!IOHandle.writeSolutionToFile(Solver.Model, Solver.num_chemicals, Solver.num_containers)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution(Solver.Model, Solver.num_chemicals, Solver.num_containers);
+        }
+    }
+
+    /* Model is the best assignment found when the time limit ended the search, or null. */
+    static void writeUnknown(FileIO IOHandle, BitSet[] Model, int num_containers){
+        int num_chemicals = Model == null ? 0 : Model.length;
+        if (!IOHandle.writeSolutionToFile("unknown", Model, num_chemicals, num_containers)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution("unknown", Model, num_chemicals, num_containers);
+        }
+    }
+
+    static void writeNoSolution(FileIO IOHandle){
+        if (!IOHandle.writeSolutionToFile(null, 0, 0)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution(null, 0, 0);
+        }
+    }
+
+    /* A model that fails checkModel is a bug in an engine or an encoding, not an answer. */
+    static void writeError(FileIO IOHandle){
+        if (!IOHandle.writeSolutionToFile("error", null, 0, 0)){
+            System.out.println("Error writing to file");
+            IOHandle.printSolution("error", null, 0, 0);
+        }
+    }
+
     public static void main( String[] args) {
         try{        
+            SolverOptions Options = new SolverOptions(args, "complete", "max_resolvent", "local", "symmetry", "amo", "capacity", "presolve", "workers", "noise", "max_tries", "restart", "pick", "race", "preprocess", "timeout");
+            args = Options.Positional;
             if (args.length != 4)
             {
-                System.out.println("Incorrect command.");
-                System.out.println("Usage :java SATSolver <input_file> <output_file> <p> <max_flips>");
+                printIncorrectArguments();
                 return;
             }
 
             FileIO IOHandle = new FileIO(args[0]);
             double p = Double.parseDouble(args[2]);
             int max_flips = Integer.parseInt(args[3]);
-            
-            ConstraintSolver ConstraintSolver1 = IOHandle.readTextFile();
-            if (ConstraintSolver1 == null){
+            String complete = Options.getChoice("complete", "cdcl", "resolution", "cube", "cp");
+            int max_resolvent = Options.getInt("max_resolvent", Integer.MAX_VALUE);
+            String local = Options.getChoice("local", "walksat", "chemical", "paws");
+            boolean symmetry = Options.getChoice("symmetry", "off", "on").equals("on");
+            String encoding = Options.getChoice("amo", CardinalityEncoder.ENCODINGS);
+            String capacity_encoding = Options.getChoice("capacity", CardinalityEncoder.AT_MOST_K_ENCODINGS);
+            boolean presolve = Options.getChoice("presolve", "on", "off").equals("on");
+            int workers = Options.getInt("workers", 1);
+            boolean adaptive = Options.getChoice("noise", "fixed", "adaptive").equals("adaptive");
+            int max_tries = Options.getInt("max_tries", 1);
+            String restart = Options.getChoice("restart", RestartPolicy.POLICIES);
+            String pick = Options.getChoice("pick", PickStrategy.NAMES);
+            boolean race = Options.getChoice("race", "off", "on").equals("on");
+            String passes[] = Preprocessor.parse(Options.getString("preprocess", "none"));
+            double timeout = Options.getDouble("timeout", 0);
+            if (max_tries < 1)
+                throw new IllegalArgumentException("Incorrect value for -max_tries: " + max_tries);
+            if (timeout < 0)
+                throw new IllegalArgumentException("Incorrect value for -timeout: " + timeout);
+            Deadline Limit = timeout > 0 ? new Deadline((long)(timeout * 1000)) : null;
+
+            ChemicalGraph Graph = IOHandle.readGraph();
+            if (Graph == null){
                 System.out.println("Input file format incorrect.");
                 return;
             }
+            if (presolve){
+                GraphPresolve Presolve = new GraphPresolve(Graph);
+                int status = Presolve.solve();
+                if (status == GraphPresolve.UNSATISFIABLE){
+                    if (Presolve.Clique.length > Graph.num_containers)
+                        System.out.println("Presolve: found " + Presolve.Clique.length + " pairwise separate chemicals for " + Graph.num_containers + " containers");
+                    System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                    IOHandle.FilePath = args[1];
+                    writeNoSolution(IOHandle);
+                    return;
+                }
+                if (status == GraphPresolve.SATISFIABLE){
+                    System.out.println("Presolve: DSATUR colouring uses " + Presolve.num_colors + " containers");
+                    System.out.println("The Satisfiablity problem can be solved with the given values");
+                    IOHandle.FilePath = args[1];
+                    ConstraintSolver PresolveModel = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers);
+                    PresolveModel.setModel(Presolve.containerOf);
+                    writeSolution(IOHandle, PresolveModel);
+                    return;
+                }
+                System.out.println("Presolve: largest clique found has " + Presolve.Clique.length + " chemicals, DSATUR needs more than " + Graph.num_containers + " containers");
+            }
+            
+            if (complete.equals("cp")){
+                if (CPSolver.isApplicable(Graph)){
+                    IOHandle.FilePath = args[1];
+                    CPSolver Solver = new CPSolver(Graph);
+                    if (Limit != null){
+                        Solver.Stop = new AtomicBoolean();
+                        Limit.watch(Solver.Stop);
+                    }
+                    boolean satisfiable = Solver.solve();
+                    System.out.println("CP search: " + Solver.nodes + " nodes, " + Solver.failures + " failures");
+                    if (!satisfiable && Limit != null && Limit.expired()){
+                        System.out.println("The time limit was reached before the Satisfiablity problem was decided");
+                        writeUnknown(IOHandle, null, Graph.num_containers);
+                    }
+                    else if (satisfiable){
+                        System.out.println("The Satisfiablity problem can be solved with the given values");
+                        ConstraintSolver CPModel = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers);
+                        CPModel.setModel(Solver.containerOf);
+                        writeSolution(IOHandle, CPModel);
+                    }
+                    else {
+                        System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                        writeNoSolution(IOHandle);
+                    }
+                    return;
+                }
+                System.out.println("The CP engine handles at most " + CPSolver.MAX_CONTAINERS + " containers, using CDCL");
+                complete = "cdcl";
+            }
+            
+            ConstraintSolver ConstraintSolver1 = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers, encoding);
+            ConstraintSolver1.addConstraints(Graph, capacity_encoding);
+            ConstraintSolver1.adaptive = adaptive;
+            ConstraintSolver1.max_tries = max_tries;
+            ConstraintSolver1.restart = restart;
+            ConstraintSolver1.pick = pick;
+            if (Limit != null)
+                ConstraintSolver1.setDeadline(Limit);
+            if (symmetry)
+                ConstraintSolver1.addSymmetryBreakingConstraint(null);
             System.out.println("Knowledge Base:");
-            IOHandle.printKB(ConstraintSolver1.KB);
+            IOHandle.printKB(ConstraintSolver1.KB, ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers);
             IOHandle.FilePath = args[1];
-            if (!ConstraintSolver1.PLSatisfiability(ConstraintSolver1.KB))
+            
+            if (passes.length > 0){
+                boolean satisfiable = ConstraintSolver1.preprocess(passes);
+                for (String line : ConstraintSolver1.Simplifier.Report)
+                    System.out.println(line);
+                if (!satisfiable){
+                    System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                    writeNoSolution(IOHandle);
+                    return;
+                }
+            }
+            
+            if (TwoSatSolver.isTwoSat(ConstraintSolver1.KB)){
+                System.out.println("Every clause is binary, solving as 2-SAT");
+                if (ConstraintSolver1.TwoSatSatisfiability(ConstraintSolver1.KB)){
+                    System.out.println("The Satisfiablity problem can be solved with the given values");
+                    writeSolution(IOHandle, ConstraintSolver1);
+                }
+                else {
+                    System.out.println("The Satisfiablity problem cannot be solved with the given values");
+                    writeNoSolution(IOHandle);
+                }
+                return;
+            }
+            
+            String name = local.equals("chemical") ? "Chemical search" : local.equals("paws") ? "PAWS" : "WalkSAT";
+            ConstraintSolver Solver = ConstraintSolver1;
+            String engine = complete;
+            /* CDCLSolver.SATISFIABLE, UNSATISFIABLE or STOPPED; resolution without a refutation leaves the model to the walk. */
+            IntSupplier Complete = () -> {
+                if (engine.equals("resolution")){
+                    if (Solver.PLSatisfiability(Solver.KB, max_resolvent) == ResolutionProver.REFUTED)
+                        return CDCLSolver.UNSATISFIABLE;
+                    return Solver.stopped() ? CDCLSolver.STOPPED : CDCLSolver.SATISFIABLE;
+                }
+                if (engine.equals("cube"))
+                    return Solver.CubeSatisfiability(Solver.KB, Graph, !symmetry);
+                return Solver.CDCLSatisfiability(Solver.KB);
+            };
+            BooleanSupplier Local = () -> {
+                if (local.equals("chemical"))
+                    return Solver.ChemicalSearch(Graph, p, max_flips);
+                if (local.equals("paws"))
+                    return Solver.ClauseWeighting(Solver.KB, max_flips);
+                return Solver.WalkSat(Solver.KB, p, max_flips, workers);
+            };
+            
+            /* Printed by the main thread once the engine is done, as the race runs it on another one. */
+            Runnable Truncated = () -> {
+                if (Solver.ResolutionTruncated)
+                    System.out.println("Resolution dropped resolvents longer than " + max_resolvent + "; no refutation was found within that bound");
+            };
+            
+            int result;
+            boolean found, failed = false;
+            if (race){
+                EngineRace Race = new EngineRace();
+                AtomicBoolean Own = Solver.Stop;
+                Solver.setStop(Race.Stop);
+                Race.run(Complete, () -> Solver.CDCLModel != null, Local);
+                Solver.Stop = Own;
+                Truncated.run();
+                found = Race.found;
+                result = Race.result;
+                failed = !found && Race.Failure != null;
+                if (failed)
+                    System.out.println("The complete engine failed: " + Race.Failure);
+                if (found)
+                    System.out.println(name + " found a model while racing the complete engine");
+                else if (result == CDCLSolver.SATISFIABLE && Solver.CDCLModel != null){
+                    System.out.println("The complete engine found a model while racing " + name);
+                    Solver.setModel(Solver.CDCLModel);
+                    found = true;
+                }
+                /* The walk ended on its own only if nothing set the race's Stop. */
+                else if (result == CDCLSolver.SATISFIABLE && Race.Stop.get())
+                    result = CDCLSolver.STOPPED;
+            }
+            else {
+                result = Complete.getAsInt();
+                Truncated.run();
+                /* A model from the complete engine settles it; the walk is for resolution and timeouts. */
+                if (result == CDCLSolver.SATISFIABLE && Solver.CDCLModel != null){
+                    System.out.println("The complete engine found a model");
+                    Solver.setModel(Solver.CDCLModel);
+                    found = true;
+                }
+                else {
+                    found = result != CDCLSolver.UNSATISFIABLE && Local.getAsBoolean();
+                    if (!found && result == CDCLSolver.SATISFIABLE && Solver.stopped())
+                        result = CDCLSolver.STOPPED;
+                }
+            }
+            
+            if (!found && (result == CDCLSolver.STOPPED || failed))
+            {
+                System.out.println((failed ? "No answer" : "Time limit reached") + "; the best assignment found leaves " + Solver.best_unsat + (local.equals("chemical") ? " constraints violated" : " clauses unsatisfied"));
+                if (failed)
+                    System.out.println("The Satisfiablity problem could not be decided");
+                else
+                    System.out.println("The time limit was reached before the Satisfiablity problem was decided");
+                writeUnknown(IOHandle, Solver.Model, Solver.num_containers);
+            }
+            else if (!found && result == CDCLSolver.UNSATISFIABLE)
             {
                 System.out.println("The Satisfiablity problem cannot be solved with the given values");
-                if (!IOHandle.writeSolutionToFile(null, 0, 0)){
-                    System.out.println("Error writing to file");
-                    IOHandle.printSolution(null, 0, 0);
-                }
-                    
+                writeNoSolution(IOHandle);
             }
             else
             {
-                System.out.println("The Satisfiablity problem can be solved with the given values");
-                if (ConstraintSolver1.WalkSat(ConstraintSolver1.KB, p, max_flips)){
-                    if (!IOHandle.writeSolutionToFile(ConstraintSolver1.Model, ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers)){
-                        System.out.println("Error writing to file");
-                        IOHandle.printSolution(ConstraintSolver1.Model, ConstraintSolver1.num_chemicals, ConstraintSolver1.num_containers);
-                    }
+                int violated = found ? Solver.checkModel(Graph) : 0;
+                if (violated > 0){
+                    System.out.println("Internal error: the model found breaks " + violated + " constraints or clauses");
+                    writeError(IOHandle);
+                }
+                else if (found){
+                    System.out.println("The Satisfiablity problem can be solved with the given values");
+                    writeSolution(IOHandle, Solver);
                 }
                 else {
-                    System.out.println("WalkSAT failed to find a solution");
-                    if (!IOHandle.writeSolutionToFile(null, 0, 0)){
-                        System.out.println("Error writing to file");
-                        IOHandle.printSolution(null, 0, 0);                        
-                    }
+                    /* Without a model, only a saturated resolution run proves the KB satisfiable. */
+                    if (engine.equals("resolution") && Solver.ResolutionStatus == ResolutionProver.SATURATED)
+                        System.out.println("The Satisfiablity problem can be solved with the given values");
+                    System.out.println(name + " failed to find a solution");
+                    writeNoSolution(IOHandle);
                 }
-                    
             }
 
         }
-        catch(NumberFormatException e){
-            System.out.println("Incorrect command.");
-            System.out.println("Usage :java SATSolver <input_file> <output_file> <p> <max_flips>");
+        catch(IllegalArgumentException e){
+            printIncorrectArguments();
         }
             
     }
@@ -1,156 +1,57 @@
 import java.util.BitSet;
-import java.util.HashSet;
-import java.util.Objects;
 import java.util.Random;
-import java.util.Set;
-
-class Literal{
-    public int chemical;
-    public int container;    
-    
-    Literal (int chemical, int container){
-        this.chemical = chemical;
-        this.container = container;        
-    }
-    
-  
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final Literal other = (Literal) obj;
-        if (this.chemical != other.chemical) {
-            return false;
-        }
-        return this.container == other.container;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 7;
-        hash = 89 * hash + this.chemical;
-        hash = 89 * hash + this.container;
-        return hash;
-    }
-}
-
-class ClauseLiteral{
-    public Literal literal;
-    public boolean isNegated;
-    
-    ClauseLiteral (Literal literal, boolean isNegated){
-        this.literal = literal;
-        this.isNegated = isNegated;        
-    }
-    
-
-    public boolean isNegation(ClauseLiteral other){
-        return this.literal.equals(other.literal) && this.isNegated != other.isNegated;
-    }
-    
-    public ClauseLiteral getNegation(){
-        ClauseLiteral Negation = new ClauseLiteral(this.literal, !this.isNegated);
-        return Negation;        
-    }
-    
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final ClauseLiteral other = (ClauseLiteral) obj;
-        if (!Objects.equals(this.literal, other.literal)) {
-            return false;
-        }
-        return this.isNegated == other.isNegated;
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 5;
-        hash = 67 * hash + Objects.hashCode(this.literal);
-        hash = 67 * hash + (this.isNegated ? 1 : 0);
-        return hash;
-    }
-    
-}
-
-class CNFClause{
-    
-    public Set<ClauseLiteral> Literals;
-    
-    CNFClause(){
-        Literals = new HashSet<>();
-    }
-    
-    public void addLiteral(ClauseLiteral lit){        
-        Literals.add(lit);        
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final CNFClause other = (CNFClause) obj;
-
-        return Objects.equals(this.Literals, other.Literals);
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 3;
-        hash = 29 * hash + Objects.hashCode(this.Literals);
-        return hash;
-    }
-
-    
-}
 
 
 class ConstraintSolver{
     public int num_chemicals;
     public int num_containers;
-    public Set<CNFClause> KB;
-    public ClauseLiteral PositiveLiterals[][];
-    public ClauseLiteral NegatedLiterals[][];
+    public ClauseStore KB;
+    public int PositiveLiterals[][];
+    public int NegatedLiterals[][];
     public BitSet Model[];
     public Random randomGenerator;
-    public Set<CNFClause> FalseClauses;
+    public boolean CDCLModel[];
+    public boolean ResolutionTruncated;
+    public String encoding;
+    /* WalkSat tunes its noise on the fly when set, see LocalSearch. */
+    public boolean adaptive;
+    /* Name of the PickStrategy of WalkSat's flips. */
+    public String pick;
+    /* Number of WalkSat tries and how their flip budgets grow, see RestartPolicy. */
+    public int max_tries;
+    public String restart;
     public int RunTime;
     
+    
     ConstraintSolver(int num_chemicals, int num_containers){
+        this(num_chemicals, num_containers, CardinalityEncoder.AUTO);
+    }
+    
+    /* encoding names the at-most-one encoding of addExactlyOneConstraint, see CardinalityEncoder. */
+    ConstraintSolver(int num_chemicals, int num_containers, String encoding){
         this.num_chemicals = num_chemicals;
         this.num_containers = num_containers;
-        PositiveLiterals = new ClauseLiteral[num_chemicals][num_containers];
-        NegatedLiterals = new ClauseLiteral[num_chemicals][num_containers];
+        this.encoding = encoding;
+        PositiveLiterals = new int[num_chemicals][num_containers];
+        NegatedLiterals = new int[num_chemicals][num_containers];
         Model = new BitSet[num_chemicals];
-        Literal literal;
+        int variable;
         for (int i = 0; i < num_chemicals; i++){            
             for (int j = 0; j < num_containers; j++){
-                literal = new Literal(i, j);
-                PositiveLiterals[i][j] = new ClauseLiteral(literal, false);
-                NegatedLiterals[i][j] = new ClauseLiteral(literal, true);
+                variable = i * num_containers + j;
+                PositiveLiterals[i][j] = ClauseStore.literal(variable, false);
+                NegatedLiterals[i][j] = ClauseStore.literal(variable, true);
             }
         }
         
         for (int i = 0; i < num_chemicals; i++){
             Model[i] = new BitSet(num_containers);
         }
-        KB = new HashSet<>();
-        FalseClauses = new HashSet<>();
+        KB = new ClauseStore(num_chemicals * num_containers);
         randomGenerator = new Random();
+        max_tries = 1;
+        pick = PickStrategy.WALKSAT;
+        restart = RestartPolicy.FIXED;
         RunTime = 0;
     }
 
@@ -158,265 +59,119 @@ class ConstraintSolver{
         
     void addExactlyOneConstraint(){
         
-        CNFClause AtLeastOneClause, AtMostOneClause;
-        for (int i = 0; i < num_chemicals; i++){                        
-            AtMostOneClause = new CNFClause();
-            for (int j = 0; j < num_containers; j++){
-
-                AtMostOneClause.addLiteral(PositiveLiterals[i][j]);                
-                
-                for (int k = j + 1; k < num_containers; k++){
-                    AtLeastOneClause = new CNFClause();
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][j]);
-                    AtLeastOneClause.addLiteral(NegatedLiterals[i][k]);                    
-                    KB.add(AtLeastOneClause);
-                }
-            }
-            
-            KB.add(AtMostOneClause);
-        }            
+        for (int i = 0; i < num_chemicals; i++){
+            CardinalityEncoder.addExactlyOne(KB, PositiveLiterals[i], num_containers, encoding);
+        }
         
     }
     
     void addSeparateConstraint(int chemical1, int chemical2){
-        CNFClause SeparateClause;
         for (int i = 0; i < num_containers; i++){
-            SeparateClause = new CNFClause();
-            SeparateClause.addLiteral(NegatedLiterals[chemical1][i]);
-            SeparateClause.addLiteral(NegatedLiterals[chemical2][i]);
-            KB.add(SeparateClause);
+            KB.addClause(NegatedLiterals[chemical1][i], NegatedLiterals[chemical2][i]);
         }        
     }
     
     void addTogetherConstraint(int chemical1, int chemical2){
-        CNFClause TogetherClause;
         for (int j = 0; j < num_containers; j++){
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(NegatedLiterals[chemical1][j]);
-            TogetherClause.addLiteral(PositiveLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
-            
-            TogetherClause = new CNFClause();
-            TogetherClause.addLiteral(PositiveLiterals[chemical1][j]);
-            TogetherClause.addLiteral(NegatedLiterals[chemical2][j]);
-            
-            KB.add(TogetherClause);
+            KB.addClause(NegatedLiterals[chemical1][j], PositiveLiterals[chemical2][j]);
+            KB.addClause(PositiveLiterals[chemical1][j], NegatedLiterals[chemical2][j]);
         }
     }
     
-    boolean containsSubset(Set<CNFClause> KB1, CNFClause C1){
-        int size = C1.Literals.size();
-        CNFClause C2 = new CNFClause();
-        ClauseLiteral lit[] = C1.Literals.toArray(new ClauseLiteral[0]);
-        long j;
-        int bit;
-        for (long i = 0; i < Math.pow(2, size); i++){
-            j = i;
-            bit = 0;
-            while (j!=0){
-                if ((j & 1) == 1){
-                    C2.addLiteral(lit[bit]);                    
-                }
-                j = j>>1;
-                bit++;
-            }
-            if (KB1.contains(C2))
-                return true;
-            C2.Literals.clear();
-        }
-        return false;
-    }
-        
-    Set<CNFClause> PLResolve(Set<CNFClause> KB1, CNFClause C1, CNFClause C2){
-        Set<CNFClause> Resolvents = new HashSet<>();
-        CNFClause clause = new CNFClause();
-        ClauseLiteral ResolvingLiteral = null;        
-        
-        int count = 0;
-        for (ClauseLiteral lit1 : C1.Literals){
-            for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit1.equals(lit2) && lit1.isNegation(lit2)){
-                    if (count == 0)
-                      ResolvingLiteral = lit1;
-                    else
-                       return Resolvents;
-                    count++;
-                }                    
-            }
-        }
-        
-        if (ResolvingLiteral == null)
-            return Resolvents;
-        
-      
-        for (ClauseLiteral lit1 : C1.Literals){
-                if(!lit1.equals(ResolvingLiteral) && !lit1.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit1);
-        }
-
-        for (ClauseLiteral lit2 : C2.Literals){
-                if(!lit2.equals(ResolvingLiteral) && !lit2.isNegation(ResolvingLiteral))
-                    clause.addLiteral(lit2);
-        }
-        
-        if(clause.Literals.isEmpty())
-            return null;
-        
-        else if (containsSubset(KB1, clause))
-            return Resolvents;
-        
-        Resolvents.add(clause);        
-        return Resolvents;
+    void addConstraints(ChemicalGraph Graph){
+        addExactlyOneConstraint();
+        for (int e = 0; e < Graph.num_together; e++)
+            addTogetherConstraint(Graph.Together[2 * e], Graph.Together[2 * e + 1]);
+        for (int e = 0; e < Graph.num_separate; e++)
+            addSeparateConstraint(Graph.Separate[2 * e], Graph.Separate[2 * e + 1]);
     }
     
-    boolean PLSatisfiability(Set<CNFClause> KB1){
-        Set<CNFClause> Resolvents;
-        Set<CNFClause> KBCopy = new HashSet<>(KB1);
-        Set<CNFClause> New = new HashSet<>();
-        
-        while (true){
-            for(CNFClause C1 : KBCopy){
-                for(CNFClause C2 : KBCopy){
-                    
-                    Resolvents = PLResolve(KB1, C1, C2);
-                    if (Resolvents == null)
-                        return false;
-                    
-                    New.addAll(Resolvents);                        
-                }
-            }
-                                
-            if (KBCopy.containsAll(New))
-                return true;
-
-            KBCopy.addAll(New);     
-            
-        }        
+    int PLSatisfiability(ClauseStore KB1){
+        return PLSatisfiability(KB1, Integer.MAX_VALUE);
     }
     
-    int getRandomNumber(int start, int end){
-        int random = start + randomGenerator.nextInt(end - start + 1);
-        return random;
+    /*
+     * Saturates KB1 by resolution, keeping resolvents of at most max_length
+     * literals. Returns ResolutionProver.REFUTED, SATURATED or TRUNCATED; only
+     * SATURATED proves KB1 satisfiable.
+     */
+    int PLSatisfiability(ClauseStore KB1, int max_length){
+        ResolutionProver Prover = new ResolutionProver(KB1, max_length);
+        int result = Prover.prove();
+        ResolutionTruncated = result != ResolutionProver.REFUTED && Prover.truncated;
+        return result;
     }
     
-    boolean doRandom(double p){
-        return randomGenerator.nextDouble() <= p;
+    boolean CDCLSatisfiability(ClauseStore KB1){
+        CDCLSolver Solver = new CDCLSolver(KB1);
+        if (!Solver.solve())
+            return false;
+        CDCLModel = Solver.Model;
+        return true;
     }
     
-    void getAllFalseClauses(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses){        
-        int chemical, container;
-        boolean isNegated, value, satisfied;
-
-        for (CNFClause Clause : KB1){
-            satisfied = false;
-            for (ClauseLiteral Literal : Clause.Literals){
-                chemical = Literal.literal.chemical;
-                container = Literal.literal.container;
-                isNegated = Literal.isNegated;
-                value = Model[chemical].get(container);
-                if (value == !isNegated){
-                    satisfied = true;
-                    break;
-                }                    
-            }
-            if (!satisfied)
-                FalseClauses.add(Clause);
-            
-        }
-    }
-    CNFClause getRandomFalseClause(Set<CNFClause> KB1, Set<CNFClause> FalseClauses){
-        
-        int random;
-        int i = 0;
-
-        random = getRandomNumber(0, FalseClauses.size() - 1);
-        for (CNFClause Clause : FalseClauses){
-            if (i == random)
-               return Clause;            
-            i++;
-        }
-        return null;
-
+    boolean TwoSatSatisfiability(ClauseStore KB1){
+        TwoSatSolver Solver = new TwoSatSolver(KB1);
+        if (!Solver.solve())
+            return false;
+        setModel(Solver.Model);
+        return true;
     }
-    ClauseLiteral getRandomLiteral(CNFClause Clause){        
-
-        int random = getRandomNumber(0, Clause.Literals.size() - 1);
-        int i = 0;
-        ClauseLiteral RandomLiteral = null;
-                
-        for (ClauseLiteral literal : Clause.Literals){
-            if (i == random){
-                RandomLiteral = literal;
-                break;
-            }                
-            i++;
-        }
-        
-        return RandomLiteral;
+    
+    int getRandomNumber(int start, int end){
+        int random = start + randomGenerator.nextInt(end - start + 1);
+        return random;
     }
     
-    ClauseLiteral getMaximizingLiteral(Set<CNFClause> KB1, BitSet[] Model, Set<CNFClause> FalseClauses, CNFClause Clause){
-        int max = 0;
-        ClauseLiteral MaxLiteral = null;
-        int refcount;
-        int chemical, container;
-        
-        for (ClauseLiteral clauseliteral : Clause.Literals){
-            chemical = clauseliteral.literal.chemical;
-            container = clauseliteral.literal.container;
-            refcount = 0;
-            for (CNFClause FalseClause : FalseClauses){
-                if (FalseClause.Literals.contains(clauseliteral))
-                    refcount++;
-            }
-            
-            if (refcount > max){
-                max = refcount;
-                MaxLiteral = clauseliteral;
+    void setModel(boolean[] Assignment){
+        for (int i = 0; i < num_chemicals; i++){
+            for (int j = 0; j < num_containers; j++){
+                Model[i].set(j, Assignment[i * num_containers + j]);
             }
-                
-        }            
-        return MaxLiteral;
+        }
     }
     
    
-    boolean WalkSat(Set<CNFClause> KB1, double p, int max_flips){
+    /*
+     * Up to max_tries walks from fresh random assignments, try t allowed
+     * RestartPolicy.cutoff(restart, max_flips, t) flips. When none finds a
+     * model, Model is the end of the try that left the fewest clauses
+     * unsatisfied.
+     */
+    boolean WalkSat(ClauseStore KB1, double p, int max_flips){
         
-        int random, chemical, container;
-        ClauseLiteral flipLiteral;
-        CNFClause RandomClause;
+        int random, best_unsat = Integer.MAX_VALUE, cutoff;
+        boolean Assignment[] = new boolean[KB1.num_variables];
+        boolean Best[] = null;
+        LocalSearch Search = new LocalSearch(KB1, randomGenerator);
+        Search.adaptive = adaptive;
+        Search.Strategy = PickStrategy.forName(pick);
+        RunTime = 0;
 
-        for (int i = 0; i < num_chemicals; i++){
-            random = getRandomNumber(0, num_containers - 1);
-            Model[i].set(random);
-        }
-        
-        for (int i = 0; i < max_flips; i++){
-            
-            FalseClauses.clear();
-            getAllFalseClauses(KB1, Model, FalseClauses);
+        for (int t = 0; t < max_tries; t++){
+            for (int i = 0; i < num_chemicals; i++){
+                random = getRandomNumber(0, num_containers - 1);
+                Model[i].clear();
+                Model[i].set(random);
+                for (int j = 0; j < num_containers; j++){
+                    Assignment[i * num_containers + j] = Model[i].get(j);
+                }
+            }
             
-            if (FalseClauses.isEmpty())
-            {
-                RunTime = i + 1;
+            Search.initialize(Assignment);
+            cutoff = RestartPolicy.cutoff(restart, max_flips, t);
+            if (Search.solve(p, cutoff)){
+                setModel(Search.Assignment);
+                RunTime += Search.flips + 1;
                 return true;
-            }           
-            
-            
-            RandomClause = getRandomFalseClause(KB1, FalseClauses);
-            if (doRandom(p))
-                flipLiteral = getRandomLiteral(RandomClause);
-            else 
-                flipLiteral = getMaximizingLiteral(KB1, Model, FalseClauses, RandomClause);
-
-                        
-            chemical = flipLiteral.literal.chemical;
-            container = flipLiteral.literal.container;
-            Model[chemical].flip(container);
-
+            }
+            RunTime += cutoff;
+            if (Search.num_unsat < best_unsat){
+                best_unsat = Search.num_unsat;
+                Best = Search.Assignment.clone();
+            }
         }
-        RunTime = max_flips;
+        setModel(Best);
         return false;
     }
     
@@ -425,9 +180,22 @@ class ConstraintSolver{
 class RandomInstanceGenerator{
         
         Random RandomGenerator;
+        String encoding;
+        boolean adaptive;
+        int max_tries;
+        String restart;
+        String pick;
         
         RandomInstanceGenerator(){
+            this(CardinalityEncoder.AUTO);
+        }
+        
+        RandomInstanceGenerator(String encoding){
             RandomGenerator = new Random();
+            this.encoding = encoding;
+            max_tries = 1;
+            restart = RestartPolicy.FIXED;
+            pick = PickStrategy.WALKSAT;
         }
         
         int doRandom(double y, double n){
@@ -448,10 +216,9 @@ class RandomInstanceGenerator{
             return 0;
             
         }
-        ConstraintSolver GenerateRandomInstance(int N, int M, double y, double n){
+        ChemicalGraph GenerateRandomGraph(int N, int M, double y, double n){
             
-            ConstraintSolver SATSolver = new ConstraintSolver(N, M);
-            SATSolver.addExactlyOneConstraint();
+            ChemicalGraph Graph = new ChemicalGraph(N, M);
             int random;
             for(int i = 0; i < N; i++){
                 for(int j = i + 1; j < N; j++){    
@@ -459,16 +226,30 @@ class RandomInstanceGenerator{
                         random = doRandom(y, n);
                         if(random == 1)
                         {
-                            SATSolver.addTogetherConstraint(i, j);
+                            Graph.addTogether(i, j);
                         }
                         else if(random == -1){
-                            SATSolver.addSeparateConstraint(i, j);
+                            Graph.addSeparate(i, j);
                         }
                     }                    
                 }
             }
+            return Graph;
+        }
+        
+        ConstraintSolver GenerateRandomInstance(ChemicalGraph Graph){
+            ConstraintSolver SATSolver = new ConstraintSolver(Graph.num_chemicals, Graph.num_containers, encoding);
+            SATSolver.addConstraints(Graph);
+            SATSolver.adaptive = adaptive;
+            SATSolver.max_tries = max_tries;
+            SATSolver.restart = restart;
+            SATSolver.pick = pick;
             return SATSolver;
         }
+        
+        ConstraintSolver GenerateRandomInstance(int N, int M, double y, double n){
+            return GenerateRandomInstance(GenerateRandomGraph(N, M, y, n));
+        }
  }
 
             
@@ -482,11 +263,29 @@ public class SATSolverRandomInstance {
         System.out.println("Yes List Test: java SATSolverRandomInstance <selector = 2> <Num_Sentences> <N> <M> <p> <max_flips> <n> <y start> <y end> <y interval>");
         System.out.println();
         System.out.println("Clause/Symbol Ratio Test: java SATSolverRandomInstance <selector = 3> <Num_Satisfiable_Sentences> <N> <M> <p> <max_flips> <y> <n>");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -complete cdcl|resolution   complete engine of the No List Test (default cdcl);");
+        System.out.println("                              instances with only binary clauses are solved as 2-SAT");
+        System.out.println("  -amo auto|pairwise|sequential|commander|product");
+        System.out.println("                              at-most-one encoding of each chemical (default auto, chosen from M)");
+        System.out.println("  -presolve on|off            let a separate clique or a DSATUR colouring decide the No List");
+        System.out.println("                              Test instances before the complete engine (default on)");
+        System.out.println("  -noise fixed|adaptive       keep WalkSat's noise at p, or start at p and raise it while the");
+        System.out.println("                              walk stagnates, lowering it after improvements (default fixed)");
+        System.out.println("  -max_tries <count>          WalkSat tries from fresh random assignments (default 1)");
+        System.out.println("  -restart fixed|luby|geometric");
+        System.out.println("                              flip budget of each try: max_flips, or max_flips times the Luby");
+        System.out.println("                              sequence or 1.5^try (default fixed)");
+        System.out.println("  -pick walksat|novelty+|probsat-poly|probsat-exp|tabu");
+        System.out.println("                              literal WalkSat flips in a false clause (default walksat)");
     }
 
 
     public static void main( String[] args) {
         try{        
+            SolverOptions Options = new SolverOptions(args, "complete", "amo", "presolve", "noise", "max_tries", "restart", "pick");
+            args = Options.Positional;
             if (args.length < 8)
             {
                 printIncorrectArguments();
@@ -499,12 +298,27 @@ public class SATSolverRandomInstance {
             int num_containers = Integer.parseInt(args[3]);
             double p = Double.parseDouble(args[4]);
             int max_flips = Integer.parseInt(args[5]);
+            String complete = Options.getChoice("complete", "cdcl", "resolution");
+            String encoding = Options.getChoice("amo", CardinalityEncoder.ENCODINGS);
+            boolean presolve = Options.getChoice("presolve", "on", "off").equals("on");
+            boolean adaptive = Options.getChoice("noise", "fixed", "adaptive").equals("adaptive");
+            int max_tries = Options.getInt("max_tries", 1);
+            String restart = Options.getChoice("restart", RestartPolicy.POLICIES);
+            String pick = Options.getChoice("pick", PickStrategy.NAMES);
+            if (max_tries < 1)
+                throw new IllegalArgumentException("Incorrect value for -max_tries: " + max_tries);
             
             double nstart, nend, ninterval, ystart, yend, yinterval;
             ConstraintSolver ConstraintSolver1;
+            ChemicalGraph Graph;
+            int status;
             
-            RandomInstanceGenerator rgen = new RandomInstanceGenerator();
-            int WalkSatSatisfiability, PLSatisfiability, TestCount = 0;
+            RandomInstanceGenerator rgen = new RandomInstanceGenerator(encoding);
+            rgen.adaptive = adaptive;
+            rgen.max_tries = max_tries;
+            rgen.restart = restart;
+            rgen.pick = pick;
+            int WalkSatSatisfiability, PLSatisfiability, Presolved, TestCount = 0;
             
             if (selector == 1){
                 if (args.length < 10)
@@ -527,21 +341,40 @@ public class SATSolverRandomInstance {
                     System.out.println("Test Number: " + (TestCount + 1));
                     PLSatisfiability = 0;
                     WalkSatSatisfiability = 0;
+                    Presolved = 0;
                     for (int i = 0; i < num_sentences; i++){        
-                        ConstraintSolver1 = rgen.GenerateRandomInstance(num_chemicals, num_containers, ystart, j);
+                        Graph = rgen.GenerateRandomGraph(num_chemicals, num_containers, ystart, j);
+                        ConstraintSolver1 = rgen.GenerateRandomInstance(Graph);
+                        status = presolve ? new GraphPresolve(Graph).solve() : GraphPresolve.UNKNOWN;
                         
-                        if (ConstraintSolver1.PLSatisfiability(ConstraintSolver1.KB)){
+                        if (status != GraphPresolve.UNKNOWN){
+                            Presolved++;
+                            if (status == GraphPresolve.SATISFIABLE)
+                                PLSatisfiability++;
+                        }
+                        else if (TwoSatSolver.isTwoSat(ConstraintSolver1.KB)){
+                            if (ConstraintSolver1.TwoSatSatisfiability(ConstraintSolver1.KB))
+                                PLSatisfiability++;
+                        }
+                        else if (complete.equals("resolution") ? ConstraintSolver1.PLSatisfiability(ConstraintSolver1.KB) != ResolutionProver.REFUTED
+                                                               : ConstraintSolver1.CDCLSatisfiability(ConstraintSolver1.KB)){
                             PLSatisfiability++;
                         }
                             
-                        if (ConstraintSolver1.WalkSat(ConstraintSolver1.KB, p, max_flips)){
+                        /* WalkSat is still measured on the instances presolve colours. */
+                        if (status != GraphPresolve.UNSATISFIABLE && ConstraintSolver1.WalkSat(ConstraintSolver1.KB, p, max_flips)){
                             WalkSatSatisfiability++;
                         }
 
                     }
                     System.out.println("n = " + j);
-                    System.out.println("P(Satisfiability) for PL Resolution = " + (double)PLSatisfiability/num_sentences);
+                    if (complete.equals("resolution"))
+                        System.out.println("P(Satisfiability) for PL Resolution = " + (double)PLSatisfiability/num_sentences);
+                    else
+                        System.out.println("P(Satisfiability) for CDCL = " + (double)PLSatisfiability/num_sentences);
                     System.out.println("P(Satisfiability) for WalkSat = " + (double)WalkSatSatisfiability/num_sentences);
+                    if (presolve)
+                        System.out.println("Decided by presolve = " + (double)Presolved/num_sentences);
                     System.out.println();
                     
                     TestCount++;                    
@@ -614,7 +447,7 @@ public class SATSolverRandomInstance {
                 printIncorrectArguments();
 
         }
-        catch(NumberFormatException e){
+        catch(IllegalArgumentException e){
                 printIncorrectArguments();
         }
             
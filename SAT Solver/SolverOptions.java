@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Command line split into its positional arguments and the optional
+ * "-name value" pairs that may follow them. Only the names passed to the
+ * constructor are accepted; anything else is reported as an incorrect command.
+ */
+class SolverOptions{
+    public String Positional[];
+    private Map<String, String> Options;
+
+    SolverOptions(String[] args, String... names){
+        List<String> positional = new ArrayList<>();
+        List<String> accepted = Arrays.asList(names);
+        Options = new HashMap<>();
+        int i = 0;
+        while (i < args.length && !isOption(args[i]))
+            positional.add(args[i++]);
+
+        String name;
+        while (i < args.length){
+            if (!isOption(args[i]) || i + 1 >= args.length)
+                throw new IllegalArgumentException("Incorrect option " + args[i]);
+            name = args[i].substring(1);
+            if (!accepted.contains(name))
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            Options.put(name, args[i + 1]);
+            i += 2;
+        }
+        Positional = positional.toArray(new String[0]);
+    }
+
+    static boolean isOption(String arg){
+        return arg.length() > 1 && arg.charAt(0) == '-' && Character.isLetter(arg.charAt(1));
+    }
+
+    String getString(String name, String defaultValue){
+        return Options.getOrDefault(name, defaultValue);
+    }
+
+    /* Returns the option value if it is one of choices; an unset option gives choices[0]. */
+    String getChoice(String name, String... choices){
+        String value = Options.get(name);
+        if (value == null)
+            return choices[0];
+        for (String choice : choices){
+            if (choice.equals(value))
+                return value;
+        }
+        throw new IllegalArgumentException("Incorrect value for -" + name + ": " + value);
+    }
+
+    int getInt(String name, int defaultValue){
+        String value = Options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    double getDouble(String name, double defaultValue){
+        String value = Options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/*
+ * Connected components of the "together" (+1) edges, found with union-find.
+ * Every chemical of a group must share one container, so a group can be
+ * encoded as a single chemical. Group[c] is the group of chemical c, numbered
+ * 0 .. num_groups - 1 in order of first appearance.
+ *
+ * A "separate" (-1) edge inside one group makes the input unsatisfiable;
+ * Conflict then holds the two chemicals of the first such edge.
+ */
+class TogetherGroups{
+    public int Group[];
+    public int num_groups;
+    public int Conflict[];
+
+    TogetherGroups(ChemicalGraph Graph){
+        UnionFind Sets = new UnionFind(Graph.num_chemicals);
+        for (int e = 0; e < Graph.num_together; e++)
+            Sets.union(Graph.Together[2 * e], Graph.Together[2 * e + 1]);
+
+        Group = new int[Graph.num_chemicals];
+        int Label[] = new int[Graph.num_chemicals];
+        Arrays.fill(Label, -1);
+        int a;
+        for (int c = 0; c < Graph.num_chemicals; c++){
+            a = Sets.find(c);
+            if (Label[a] < 0)
+                Label[a] = num_groups++;
+            Group[c] = Label[a];
+        }
+
+        for (int e = 0; e < Graph.num_separate && Conflict == null; e++){
+            if (Group[Graph.Separate[2 * e]] == Group[Graph.Separate[2 * e + 1]])
+                Conflict = new int[]{Graph.Separate[2 * e], Graph.Separate[2 * e + 1]};
+        }
+    }
+
+    /* The graph over groups: no together edges and one separate edge per pair of groups. */
+    ChemicalGraph reduce(ChemicalGraph Graph){
+        ChemicalGraph Reduced = new ChemicalGraph(num_groups, Graph.num_containers);
+
+        long Keys[] = new long[Graph.num_separate];
+        int count = 0, a, b;
+        for (int e = 0; e < Graph.num_separate; e++){
+            a = Group[Graph.Separate[2 * e]];
+            b = Group[Graph.Separate[2 * e + 1]];
+            if (a != b)
+                Keys[count++] = (long)Math.min(a, b) * num_groups + Math.max(a, b);
+        }
+        Arrays.sort(Keys, 0, count);
+        for (int i = 0; i < count; i++){
+            if (i == 0 || Keys[i] != Keys[i - 1])
+                Reduced.addSeparate((int)(Keys[i] / num_groups), (int)(Keys[i] % num_groups));
+        }
+        return Reduced;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Linear-time solver for KBs whose clauses have at most two literals.
+ *
+ * Each clause (a V b) becomes the implications ~a -> b and ~b -> a, and a unit
+ * clause (a) becomes ~a -> a. The KB is unsatisfiable iff some variable shares
+ * a strongly connected component with its negation. Tarjan's algorithm numbers
+ * the components in reverse topological order, so setting x true exactly when
+ * comp(x) < comp(~x) gives a model. Literals sharing a Component imply each
+ * other and so are equivalent in every model.
+ */
+class TwoSatSolver{
+    public int num_variables;
+    public boolean Model[];
+    public int Component[];
+
+    private int Edges[];
+    private int EdgeStart[];
+    private boolean empty_clause;
+
+    static boolean isTwoSat(ClauseStore KB){
+        for (int c = 0; c < KB.size(); c++){
+            if (KB.clauseLength(c) > 2)
+                return false;
+        }
+        return true;
+    }
+
+    TwoSatSolver(ClauseStore KB){
+        num_variables = KB.num_variables;
+        int num_literals = 2 * num_variables;
+        int a, b;
+
+        EdgeStart = new int[num_literals + 1];
+        for (int c = 0; c < KB.size(); c++){
+            if (KB.clauseLength(c) == 0){
+                empty_clause = true;
+                continue;
+            }
+            a = KB.Literals[KB.Start[c]];
+            b = KB.Literals[KB.Start[c + 1] - 1];
+            EdgeStart[ClauseStore.negate(a) + 1]++;
+            if (a != b)
+                EdgeStart[ClauseStore.negate(b) + 1]++;
+        }
+        for (int l = 0; l < num_literals; l++)
+            EdgeStart[l + 1] += EdgeStart[l];
+
+        int Next[] = new int[num_literals];
+        System.arraycopy(EdgeStart, 0, Next, 0, num_literals);
+        Edges = new int[EdgeStart[num_literals]];
+        for (int c = 0; c < KB.size(); c++){
+            if (KB.clauseLength(c) == 0)
+                continue;
+            a = KB.Literals[KB.Start[c]];
+            b = KB.Literals[KB.Start[c + 1] - 1];
+            Edges[Next[ClauseStore.negate(a)]++] = b;
+            if (a != b)
+                Edges[Next[ClauseStore.negate(b)]++] = a;
+        }
+    }
+
+    boolean solve(){
+        if (empty_clause)
+            return false;
+
+        int num_literals = 2 * num_variables;
+        int Index[] = new int[num_literals];
+        int Low[] = new int[num_literals];
+        Component = new int[num_literals];
+        boolean OnStack[] = new boolean[num_literals];
+        int Stack[] = new int[num_literals];
+        int CallStack[] = new int[num_literals];
+        int EdgePosition[] = new int[num_literals];
+        int index = 1, stack_size = 0, call_size, num_components = 0;
+        int v, w, top;
+
+        for (int root = 0; root < num_literals; root++){
+            if (Index[root] != 0)
+                continue;
+            call_size = 0;
+            CallStack[call_size++] = root;
+            Index[root] = Low[root] = index++;
+            EdgePosition[root] = EdgeStart[root];
+            Stack[stack_size++] = root;
+            OnStack[root] = true;
+
+            while (call_size > 0){
+                v = CallStack[call_size - 1];
+                if (EdgePosition[v] < EdgeStart[v + 1]){
+                    w = Edges[EdgePosition[v]++];
+                    if (Index[w] == 0){
+                        Index[w] = Low[w] = index++;
+                        EdgePosition[w] = EdgeStart[w];
+                        Stack[stack_size++] = w;
+                        OnStack[w] = true;
+                        CallStack[call_size++] = w;
+                    }
+                    else if (OnStack[w] && Index[w] < Low[v])
+                        Low[v] = Index[w];
+                    continue;
+                }
+
+                if (Low[v] == Index[v]){
+                    do {
+                        top = Stack[--stack_size];
+                        OnStack[top] = false;
+                        Component[top] = num_components;
+                    } while (top != v);
+                    num_components++;
+                }
+                call_size--;
+                if (call_size > 0 && Low[v] < Low[CallStack[call_size - 1]])
+                    Low[CallStack[call_size - 1]] = Low[v];
+            }
+        }
+
+        Model = new boolean[num_variables];
+        int positive, negative;
+        for (int x = 0; x < num_variables; x++){
+            positive = ClauseStore.literal(x, false);
+            negative = ClauseStore.literal(x, true);
+            if (Component[positive] == Component[negative])
+                return false;
+            Model[x] = Component[positive] < Component[negative];
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Disjoint sets over 0 .. size - 1 with union by size and path halving, as
+ * used by TogetherGroups and GraphComponents.
+ */
+class UnionFind{
+    private int Parent[];
+    private int Size[];
+
+    UnionFind(int size){
+        Parent = new int[size];
+        Size = new int[size];
+        for (int i = 0; i < size; i++){
+            Parent[i] = i;
+            Size[i] = 1;
+        }
+    }
+
+    int find(int i){
+        while (Parent[i] != i){
+            Parent[i] = Parent[Parent[i]];
+            i = Parent[i];
+        }
+        return i;
+    }
+
+    /* Merges the sets of a and b; returns false when they already were one. */
+    boolean union(int a, int b){
+        a = find(a);
+        b = find(b);
+        if (a == b)
+            return false;
+        int t;
+        if (Size[a] < Size[b]){
+            t = a;
+            a = b;
+            b = t;
+        }
+        Parent[b] = a;
+        Size[a] += Size[b];
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * ClauseEvaluator on the incubating Vector API. Each step gathers the values
+ * of SPECIES.length() first and second literals through the index arrays
+ * First and Second, ORs them and compares with zero; the lanes left set are
+ * the false clauses. The tail past the last full vector is done one clause
+ * at a time.
+ *
+ * Build with  javac --add-modules jdk.incubator.vector VectorClauseEvaluator.java
+ * and run with  java --add-modules jdk.incubator.vector ...  for
+ * ClauseEvaluator.create() to pick it up; the usage text of SATSolver and
+ * SATSolverEC gives both lines.
+ */
+class VectorClauseEvaluator extends ClauseEvaluator{
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    VectorClauseEvaluator(ClauseStore KB){
+        super(KB);
+    }
+
+    @Override
+    int falseBinary(int[] Values, boolean[] False){
+        int count = 0, i = 0;
+        int bound = SPECIES.loopBound(num_binary);
+        IntVector first, second;
+        VectorMask<Integer> unsatisfied;
+        for (; i < bound; i += SPECIES.length()){
+            first = IntVector.fromArray(SPECIES, Values, 0, First, i);
+            second = IntVector.fromArray(SPECIES, Values, 0, Second, i);
+            unsatisfied = first.or(second).compare(VectorOperators.EQ, 0);
+            if (False != null)
+                unsatisfied.intoArray(False, i);
+            count += unsatisfied.trueCount();
+        }
+        boolean tail;
+        for (; i < num_binary; i++){
+            tail = (Values[First[i]] | Values[Second[i]]) == 0;
+            if (False != null)
+                False[i] = tail;
+            if (tail)
+                count++;
+        }
+        return count;
+    }
+}
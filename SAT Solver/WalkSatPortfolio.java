@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Independent WalkSat runs on one KB, one per worker. Local search run times
+ * are heavy-tailed, so several runs with their own seed and noise finish
+ * much sooner than one run in expectation.
+ *
+ * The workers only read the ClauseStore; each LocalSearch keeps its own
+ * assignment and counts. The first worker to find a model sets Stop, which
+ * every other worker polls between flips, and its assignment is kept even
+ * when a Deadline set Stop first. Stop may be replaced by a flag shared with
+ * other engines before solve().
+ */
+class WalkSatPortfolio{
+    public ClauseStore KB;
+    public boolean Assignment[];
+    public int winner;
+    public long flips;
+    public int best_unsat;
+    public AtomicBoolean Stop;
+
+    private List<Worker> Workers;
+
+    private class Worker extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        LocalSearch Search;
+        boolean Start[];
+        double p;
+        int max_flips;
+        int id;
+
+        @Override
+        protected void compute(){
+            Search.Stop = Stop;
+            Search.initialize(Start);
+            if (Search.solve(p, max_flips)){
+                Stop.set(true);
+                win(id);
+            }
+        }
+    }
+
+    /* Records the first worker to finish with a model, whether or not Stop was already set. */
+    private synchronized void win(int id){
+        if (winner < 0)
+            winner = id;
+    }
+
+    WalkSatPortfolio(ClauseStore KB){
+        this.KB = KB;
+        Workers = new ArrayList<>();
+        Stop = new AtomicBoolean();
+        winner = -1;
+    }
+
+    /* Adds a worker that runs Search, set up over KB, from Start with noise p. */
+    void addWorker(LocalSearch Search, boolean[] Start, double p){
+        Worker worker = new Worker();
+        worker.Search = Search;
+        worker.Start = Start;
+        worker.p = p;
+        worker.id = Workers.size();
+        Workers.add(worker);
+    }
+
+    /*
+     * Runs every worker for up to max_flips flips on the common pool. Returns
+     * true when one found a model, which is then left in Assignment; otherwise
+     * Assignment is the best assignment any worker saw, leaving best_unsat
+     * clauses false. flips is the total over all workers.
+     */
+    boolean solve(int max_flips){
+        for (Worker worker : Workers)
+            worker.max_flips = max_flips;
+        ForkJoinTask.invokeAll(Workers);
+        flips = 0;
+        best_unsat = Integer.MAX_VALUE;
+        for (Worker worker : Workers){
+            flips += worker.Search.flips;
+            if (winner < 0 && worker.Search.best_unsat < best_unsat){
+                best_unsat = worker.Search.best_unsat;
+                Assignment = worker.Search.Best;
+            }
+        }
+        if (winner >= 0){
+            best_unsat = 0;
+            Assignment = Workers.get(winner).Search.Assignment;
+        }
+        return winner >= 0;
+    }
+}